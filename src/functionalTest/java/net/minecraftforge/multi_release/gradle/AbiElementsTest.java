@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/// Compiles a versioned subproject against the ABI of the base, which must resolve to the ABI JAR alone and not
+/// depend on the full JAR of the base.
+class AbiElementsTest {
+    @TempDir
+    Path projectDir;
+
+    @Test
+    void resolvesOnlyTheAbiJar() throws IOException {
+        this.setup("");
+
+        var result = this.run(":java17:printCompileClasspath", ":java17:compileJava");
+        assertTrue(result.getOutput().contains("compileClasspath=[multiReleaseJarAbi.jar]"), result.getOutput());
+
+        var abi = result.task(":multiReleaseJarAbi");
+        assertNotNull(abi);
+        assertEquals(TaskOutcome.SUCCESS, abi.getOutcome());
+        assertNull(result.task(":jar"));
+    }
+
+    @Test
+    void buildsWithSingleArtifact() throws IOException {
+        this.setup("singleArtifact()");
+
+        // The jar task includes the layers, so depending on it from a layer would be a cycle
+        var task = this.run("jar").task(":jar");
+        assertNotNull(task);
+        assertEquals(TaskOutcome.SUCCESS, task.getOutcome());
+    }
+
+    private void setup(String options) throws IOException {
+        write("settings.gradle", """
+            rootProject.name = 'example'
+            include 'java17'
+            """);
+        write("build.gradle", """
+            plugins {
+                id 'java'
+                id 'net.minecraftforge.multi-release'
+            }
+
+            group = 'com.example'
+            java.sourceCompatibility = java.targetCompatibility = JavaVersion.VERSION_11
+
+            multiRelease {
+                register()
+                %s
+                add(17, project(':java17'))
+            }
+            """.formatted(options));
+        write("java17/build.gradle", """
+            plugins {
+                id 'java'
+            }
+
+            java.sourceCompatibility = java.targetCompatibility = JavaVersion.VERSION_17
+
+            dependencies {
+                compileOnly(project(':')) {
+                    capabilities { requireCapability('com.example:example-abi') }
+                }
+            }
+
+            tasks.register('printCompileClasspath') {
+                def files = configurations.compileClasspath.incoming.files
+                doLast {
+                    println "compileClasspath=${files.collect { it.name }}"
+                }
+            }
+            """);
+        write("src/main/java/example/Greeter.java", """
+            package example;
+
+            public class Greeter {
+                public String greet() {
+                    return "base";
+                }
+            }
+            """);
+        write("java17/src/main/java/example/Greeter.java", """
+            package example;
+
+            public class Greeter {
+                public String greet() {
+                    return new Names().java17();
+                }
+            }
+            """);
+        write("src/main/java/example/Names.java", """
+            package example;
+
+            public class Names {
+                public String java17() {
+                    return "java17";
+                }
+            }
+            """);
+    }
+
+    private BuildResult run(String... tasks) {
+        var arguments = new ArrayList<>(List.of(tasks));
+        arguments.add("--configuration-cache");
+        arguments.add("--stacktrace");
+
+        return GradleRunner.create()
+            .withProjectDir(this.projectDir.toFile())
+            .withPluginClasspath()
+            .withArguments(arguments)
+            .build();
+    }
+
+    private void write(String path, String content) throws IOException {
+        var file = this.projectDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle;
+
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarFile;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/// Builds a multi-release JAR from a versioned subproject with isolated projects enabled, which fails if the plugin
+/// touches the state of any project other than the one it is applied to.
+class IsolatedProjectsTest {
+    @TempDir
+    Path projectDir;
+
+    @Test
+    void buildsWithIsolatedProjects() throws IOException {
+        write("settings.gradle", """
+            rootProject.name = 'example'
+            include 'java17'
+            """);
+        write("build.gradle", """
+            plugins {
+                id 'java'
+                id 'net.minecraftforge.multi-release'
+            }
+
+            java.sourceCompatibility = java.targetCompatibility = JavaVersion.VERSION_11
+
+            multiRelease {
+                register()
+                add(17, project(':java17'))
+            }
+            """);
+        write("java17/build.gradle", """
+            plugins {
+                id 'java'
+            }
+
+            java.sourceCompatibility = java.targetCompatibility = JavaVersion.VERSION_17
+            """);
+        write("src/main/java/example/Greeter.java", """
+            package example;
+
+            public class Greeter {
+                public String greet() {
+                    return "base";
+                }
+            }
+            """);
+        write("java17/src/main/java/example/Greeter.java", """
+            package example;
+
+            public class Greeter {
+                public String greet() {
+                    return "java17";
+                }
+            }
+            """);
+
+        var result = GradleRunner.create()
+            .withProjectDir(this.projectDir.toFile())
+            .withPluginClasspath()
+            .withArguments("multiReleaseJar", "--configuration-cache", "-Dorg.gradle.unsafe.isolated-projects=true", "--stacktrace")
+            .build();
+
+        var task = result.task(":multiReleaseJar");
+        assertNotNull(task);
+        assertEquals(TaskOutcome.SUCCESS, task.getOutcome());
+
+        var archive = this.projectDir.resolve("build/libs/example-mr.jar").toFile();
+        try (var jar = new JarFile(archive, true, ZipFile.OPEN_READ, Runtime.version())) {
+            assertEquals("true", jar.getManifest().getMainAttributes().getValue("Multi-Release"));
+            assertEquals("META-INF/versions/17/example/Greeter.class", jar.getJarEntry("example/Greeter.class").getRealName());
+        }
+    }
+
+    private void write(String path, String content) throws IOException {
+        var file = this.projectDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle;
+
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/// Adds a layer transitively whose dependencies partly overlap the runtime classpath of the base, which the base
+/// already ships, so only the dependencies that do not overlap may end up in the layer.
+class TransitiveLayersTest {
+    @TempDir
+    Path projectDir;
+
+    @Test
+    void leavesOutWhatTheBaseShips() throws IOException {
+        this.library("shared");
+        this.library("extra");
+        this.library("layer", "shared", "extra");
+
+        write("settings.gradle", """
+            rootProject.name = 'example'
+            """);
+        write("build.gradle", """
+            plugins {
+                id 'java'
+                id 'net.minecraftforge.multi-release'
+            }
+
+            repositories {
+                maven { url = file('repo') }
+            }
+
+            dependencies {
+                implementation 'com.example:shared:1.0'
+            }
+
+            multiRelease {
+                register()
+                add(17, dependencies.create('com.example:layer:1.0')) {
+                    transitive = true
+                }
+            }
+            """);
+        write("src/main/java/example/Greeter.java", """
+            package example;
+
+            public class Greeter { }
+            """);
+
+        var result = GradleRunner.create()
+            .withProjectDir(this.projectDir.toFile())
+            .withPluginClasspath()
+            .withArguments("multiReleaseJar", "--configuration-cache", "--stacktrace")
+            .build();
+
+        var task = result.task(":multiReleaseJar");
+        assertNotNull(task);
+        assertEquals(TaskOutcome.SUCCESS, task.getOutcome());
+
+        try (var jar = new JarFile(this.projectDir.resolve("build/libs/example-mr.jar").toFile())) {
+            assertNotNull(jar.getJarEntry("META-INF/versions/17/layer/layer.txt"));
+            assertNotNull(jar.getJarEntry("META-INF/versions/17/extra/extra.txt"));
+            assertNull(jar.getJarEntry("META-INF/versions/17/shared/shared.txt"));
+        }
+    }
+
+    /// Publishes a library with a single resource and the given dependencies to the Maven repository of the project.
+    private void library(String name, String... dependencies) throws IOException {
+        var dir = this.projectDir.resolve("repo/com/example/" + name + "/1.0");
+        Files.createDirectories(dir);
+
+        try (var out = new JarOutputStream(new FileOutputStream(dir.resolve(name + "-1.0.jar").toFile()))) {
+            out.putNextEntry(new JarEntry(name + '/' + name + ".txt"));
+            out.write(name.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        var pom = new StringBuilder("""
+            <project>
+                <modelVersion>4.0.0</modelVersion>
+                <groupId>com.example</groupId>
+                <artifactId>%s</artifactId>
+                <version>1.0</version>
+                <dependencies>
+            """.formatted(name));
+        for (var dependency : dependencies) {
+            pom.append("""
+                        <dependency>
+                            <groupId>com.example</groupId>
+                            <artifactId>%s</artifactId>
+                            <version>1.0</version>
+                        </dependency>
+                """.formatted(dependency));
+        }
+        pom.append("""
+                </dependencies>
+            </project>
+            """);
+        Files.writeString(dir.resolve(name + "-1.0.pom"), pom);
+    }
+
+    private void write(String path, String content) throws IOException {
+        var file = this.projectDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/// Generates multi-release JARs with the same layout as the ones the plugin produces, for use by the benchmarks.
+///
+/// The base contains a fixed number of classes, and each layer overrides a share of them. Every override is a class of
+/// the same name with a different constant, so that the lookups and class loading done by the benchmarks resolve the
+/// same names no matter which layer wins.
+///
+/// Classes are loaded in a [fixed shuffled order][#loadOrder(int)] rather than by index, so that a JAR can be written
+/// either in its usual order or [sorted][ClassLoadOrder#sort] by that order, like a JAR built with a class-load profile.
+final class MultiReleaseFixture {
+    static final String PACKAGE = "fixture";
+    static final int FIRST_LAYER = 9;
+
+    private static final long TIME = MultiReleaseCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES;
+
+    private MultiReleaseFixture() { }
+
+    /// Gets the name of the class with the given index.
+    static String className(int index) {
+        return PACKAGE + ".C" + index;
+    }
+
+    /// Gets the names of the classes in the order they are loaded.
+    ///
+    /// @param classes The number of classes in the base
+    /// @return The binary names of the classes
+    static List<String> loadOrder(int classes) {
+        var ret = new ArrayList<String>(classes);
+        for (int i = 0; i < classes; i++)
+            ret.add(className(i));
+
+        Collections.shuffle(ret, new Random(classes));
+        return ret;
+    }
+
+    /// Writes a multi-release JAR.
+    ///
+    /// @param file      The file to write to
+    /// @param classes   The number of classes in the base
+    /// @param layers    The number of layers, starting at version 9
+    /// @param overrides The share of the base classes that each layer overrides, from `0` to `1`
+    /// @param compress  Whether the entries are deflated
+    /// @param ordered   Whether the classes are sorted by their [load order][#loadOrder(int)]
+    static void write(File file, int classes, int layers, double overrides, boolean compress, boolean ordered) throws IOException {
+        var entries = new ArrayList<ArchiveEntry>();
+        entries.add(ArchiveEntry.of("META-INF/", TIME, new byte[0]));
+        entries.add(ArchiveEntry.of("META-INF/MANIFEST.MF", TIME, "Manifest-Version: 1.0\r\nMulti-Release: true\r\n\r\n".getBytes(StandardCharsets.UTF_8)));
+
+        entries.add(ArchiveEntry.of(PACKAGE + '/', TIME, new byte[0]));
+        for (int i = 0; i < classes; i++)
+            entries.add(classEntry("", i, 0));
+
+        // Each layer overrides its own random selection, so layers overlap as they would in a real project
+        var random = new Random(classes * 31L + layers);
+        for (int layer = 0; layer < layers; layer++) {
+            var version = FIRST_LAYER + layer;
+            var prefix = ArchiveEntry.VERSIONS_PREFIX + version + '/';
+            entries.add(ArchiveEntry.of(prefix, TIME, new byte[0]));
+            entries.add(ArchiveEntry.of(prefix + PACKAGE + '/', TIME, new byte[0]));
+            for (int i : select(random, classes, overrides))
+                entries.add(classEntry(prefix, i, version));
+        }
+
+        if (ordered) {
+            var profile = new ArrayList<String>(classes);
+            for (var name : loadOrder(classes))
+                profile.add(name.replace('.', '/'));
+            entries = new ArrayList<>(ClassLoadOrder.sort(entries, profile));
+        }
+
+        try (var compressor = new EntryCompressor(compress, 1);
+             var writer = new ZipWriter(new BufferedOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8, false)) {
+            compressor.writeAll(entries, writer);
+        }
+    }
+
+    private static List<Integer> select(Random random, int classes, double share) {
+        var ret = new ArrayList<Integer>();
+        for (int i = 0; i < classes; i++) {
+            if (random.nextDouble() < share)
+                ret.add(i);
+        }
+        return ret;
+    }
+
+    private static ArchiveEntry classEntry(String prefix, int index, int version) {
+        var name = className(index).replace('.', '/');
+
+        var writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "VERSION", "I", null, version).visitEnd();
+        writer.visitEnd();
+
+        return ArchiveEntry.of(prefix + name + ".class", TIME, writer.toByteArray());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.zip.ZipFile;
+
+/// Measures the runtime cost of the layout of multi-release JARs.
+///
+/// The JARs are generated by [MultiReleaseFixture] with the plugin's own writer, for every combination of the
+/// parameters. Versioned lookups are made for the version of the JVM that runs the benchmark, which is also the one
+/// class loading resolves for, so runtimes are compared by running the benchmarks on different JVMs. The `gc` profiler,
+/// which the build enables for every run, reports the allocation per operation as `gc.alloc.rate.norm`, and
+/// [#retainedSize] reports the heap an open JAR holds on to as `retainedBytes`.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiReleaseJarBenchmark {
+    private static final int CLASSES = 500;
+
+    /// The number of layers in the JAR.
+    @Param({ "1", "5", "15" })
+    public int layers;
+
+    /// The share of the base classes that each layer overrides.
+    @Param({ "0.1", "0.5", "1.0" })
+    public double overrides;
+
+    /// Whether the entries are deflated or stored.
+    @Param({ "true", "false" })
+    public boolean compress;
+
+    /// The order of the classes, either `default` as the plugin writes them, or `classLoad` as sorted by a class-load
+    /// profile.
+    @Param({ "default", "classLoad" })
+    public String order;
+
+    private File file;
+    private File copy;
+    private Runtime.Version version;
+    private String[] entryNames;
+    private String[] classNames;
+    private JarFile jar;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.file = Files.createTempFile("multi-release", ".jar").toFile();
+        MultiReleaseFixture.write(this.file, CLASSES, this.layers, this.overrides, this.compress, this.order.equals("classLoad"));
+
+        // Open JARs share what they read of the same file, so the copy that is opened anew is never held open, like a
+        // JAR read at startup
+        this.copy = Files.createTempFile("multi-release", ".jar").toFile();
+        Files.copy(this.file.toPath(), this.copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        this.version = Runtime.version();
+        this.classNames = MultiReleaseFixture.loadOrder(CLASSES).toArray(new String[0]);
+        this.entryNames = new String[CLASSES];
+        for (int i = 0; i < CLASSES; i++)
+            this.entryNames[i] = this.classNames[i].replace('.', '/') + ".class";
+
+        this.jar = this.open(this.file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.jar.close();
+        Files.deleteIfExists(this.file.toPath());
+        Files.deleteIfExists(this.copy.toPath());
+    }
+
+    private JarFile open(File file) throws IOException {
+        return new JarFile(file, true, ZipFile.OPEN_READ, this.version);
+    }
+
+    /// Opens the JAR for the running version, which reads its central directory and builds the versioned index.
+    @Benchmark
+    public void open(Blackhole blackhole) throws IOException {
+        try (var jar = this.open(this.copy)) {
+            blackhole.consume(jar.getEntry(this.entryNames[0]));
+        }
+    }
+
+    /// Counts the heap retained by an open JAR, in bytes.
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long retainedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.retainedBytes = 0;
+        }
+    }
+
+    /// Opens the JAR for the running version and measures the heap it retains once the versioned index is built.
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void retainedSize(Retained retained, Blackhole blackhole) throws IOException {
+        var memory = ManagementFactory.getMemoryMXBean();
+        long held;
+        try (var jar = this.open(this.copy)) {
+            blackhole.consume(jar.getEntry(this.entryNames[0]));
+            held = usedHeap(memory);
+        }
+        retained.retainedBytes += held - usedHeap(memory);
+    }
+
+    private static long usedHeap(MemoryMXBean memory) {
+        // A single collection may leave garbage that is only reachable from finalizable or soft references
+        for (int i = 0; i < 3; i++)
+            System.gc();
+
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /// Looks up every class of the base through the versioned view of an open JAR.
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void getEntry(Blackhole blackhole) {
+        for (var name : this.entryNames)
+            blackhole.consume(this.jar.getEntry(name));
+    }
+
+    /// Loads every class in load order through a new class loader, which resolves the versioned classes for the
+    /// running JVM.
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void loadClasses(Blackhole blackhole) throws IOException, ReflectiveOperationException {
+        try (var loader = new URLClassLoader(new URL[] { this.copy.toURI().toURL() }, null)) {
+            for (var name : this.classNames)
+                blackhole.consume(loader.loadClass(name));
+        }
+    }
+}
@@ -8,12 +8,16 @@ import org.gradle.api.Action;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConsumableConfiguration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.attributes.AttributeContainer;
 import org.gradle.api.component.AdhocComponentWithVariants;
 import org.gradle.api.file.CopySpec;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.provider.ProviderConvertible;
 import org.gradle.api.tasks.TaskProvider;
@@ -33,7 +37,8 @@ public interface MultiReleaseContainer {
     /// Gets the multi-release JAR task to be used for the multi-release output.
     ///
     /// This is *not* the same as the jar task passed in to [register][MultiReleaseExtension#register] this container.
-    /// However, it does parent off of its contents using [Jar#with(CopySpec...)].
+    /// However, it does parent off of its contents using [Jar#with(CopySpec...)]. If [#singleArtifact()] was called,
+    /// the jar task passed in is returned instead.
     ///
     /// The naming convention for this task is:
     /// `multiRelease${jar.`{@link org.codehaus.groovy.runtime.StringGroovyMethods#capitalize(CharSequence)
@@ -73,6 +78,33 @@ public interface MultiReleaseContainer {
     /// @return A provider for the consumable multi-release runtime elements
     NamedDomainObjectProvider<ConsumableConfiguration> getRuntimeElements();
 
+    /// Gets the consumable ABI elements of the source set this container was registered with, for versioned layers to
+    /// compile against.
+    ///
+    /// The only artifact of this configuration is a JAR of the source set's classes with their method bodies, private
+    /// members, anonymous, local and private nested classes, and debug information removed. It only changes when the
+    /// ABI of the base does, so the layers that compile against it stay up to date and can be taken from the build
+    /// cache otherwise. The configuration has the attributes of the source set's API elements, the dependencies of its
+    /// implementation and compile only API configurations, and the `${group}:${project.name}-abi` capability, so that
+    /// it is only selected by consumers that require it. If the project has no group, the project name is used as the
+    /// group instead:
+    ///
+    /// ```groovy
+    /// dependencies {
+    ///     compileOnly(project(':')) {
+    ///         capabilities { requireCapability('com.example:example-abi') }
+    ///     }
+    /// }
+    /// ```
+    ///
+    /// The ABI JAR is not part of the [software component][#getComponent()].
+    ///
+    /// The naming convention for this configuration is `${jar.name}AbiElements`, where `jar` is the multi-release JAR
+    /// task.
+    ///
+    /// @return A provider for the consumable ABI elements
+    NamedDomainObjectProvider<ConsumableConfiguration> getAbiElements();
+
     /// Gets the software component to be used to publish this container's [output JAR][#getJar()].
     ///
     /// While not a direct copy, the Multi-Release Java plugin attempts to parent off of the standard `java` software
@@ -91,6 +123,263 @@ public interface MultiReleaseContainer {
     /// @return The software component containing the multi-release JAR
     AdhocComponentWithVariants getComponent();
 
+    /* OUTPUT LAYOUT */
+
+    /// Merges the versioned layers into the jar task this container was registered with, instead of building a
+    /// separate multi-release JAR.
+    ///
+    /// The base jar gains the `Multi-Release` manifest attribute and becomes the [output JAR][#getJar()], so that the
+    /// source set's own API and runtime elements publish the multi-release JAR. The
+    /// [multi-release API elements][#getApiElements()] and [runtime elements][#getRuntimeElements()] are kept for
+    /// consumers that request them, but share the base jar as their artifact.
+    ///
+    /// Since the base jar is built by the standard jar task, the [minimum runtime][#getMinimumRuntime()],
+    /// [layer pruning][#getPruneLayers()], [module attributes][#getModuleAttributes()],
+    /// [layer index][#getLayerIndex()], [class-load order][#getClassLoadOrder()],
+    /// [base archive reuse][#getReuseBaseArchive()],
+    /// [in-place patching][#getPatchInPlace()], [checksums][#getChecksums()] and
+    /// [parallel compression][#getParallelCompression()] options have no effect in this mode.
+    ///
+    /// This should be called before [#getJar()] is queried.
+    void singleArtifact();
+
+    /// Gets whether project layers are read from their class and resource directories instead of their JARs.
+    ///
+    /// When enabled, which is the default, layers [added][#add] from projects are resolved to the class and resource
+    /// directories of the project's runtime elements. The project's JAR is then not built just to be unpacked into the
+    /// [output JAR][#getJar()] again. Layers from external modules are not affected. Disable this if the JAR task of a
+    /// layer project adds or changes content that its class and resource directories do not have.
+    ///
+    /// @return A property for whether to read project layers from their directories
+    Property<Boolean> getLayerClasses();
+
+    /// Gets the minimum Java runtime version that the [output JAR][#getJar()] supports.
+    ///
+    /// When set, every layer at or below this version is folded into the base of the output JAR, since any supported
+    /// runtime would use it over the base anyway. For each entry, the highest of those layers wins and replaces the
+    /// base entry, and the original versioned entries are removed. Layers above this version stay versioned. The
+    /// service files of layers are never folded, since runtimes do not read them from a layer.
+    ///
+    /// @return A property for the minimum runtime version
+    Property<JavaLanguageVersion> getMinimumRuntime();
+
+    /// Gets whether the versioned layers of the [output JAR][#getJar()] are pruned of the classes that nothing reaches.
+    ///
+    /// When enabled, the layer classes that override an entry of the base or of a lower layer are taken as roots, along
+    /// with module and package descriptors, the service providers the layers list, the layer classes that any class of
+    /// the base names, such as with `Class.forName("com.example.Java11Impl")`, and the classes matching a
+    /// [keep rule][#getPruneKeepRules()]. The constant pools of reachable layer classes are walked for references to
+    /// other layer classes, and the layer classes that are never reached are left out. This drops the helper classes
+    /// that versioned dependencies bring along without using them. The base is never pruned.
+    ///
+    /// References are found by name, including class names in string constants, but not names that are built at
+    /// runtime. Classes that are only loaded that way must be kept with a rule.
+    ///
+    /// @return A property for whether to prune the layers
+    Property<Boolean> getPruneLayers();
+
+    /// Gets the rules for the layer classes that are always kept when [pruning layers][#getPruneLayers()].
+    ///
+    /// Each rule is a binary class name, such as `com.example.Foo$Bar`, where `*` matches any part of a name within a
+    /// package and `**` matches across packages, such as `com.example.plugins.**`.
+    ///
+    /// @return A property for the keep rules
+    ListProperty<String> getPruneKeepRules();
+
+    /// Gets whether the module descriptors of the [output JAR][#getJar()] are given the `ModulePackages` and
+    /// `ModuleMainClass` attributes, as the JDK `jar` tool would add them.
+    ///
+    /// When enabled, every `module-info.class` in the JAR, both in the base and in `META-INF/versions/N/`, is rewritten
+    /// with the packages visible to the runtimes it applies to. This allows the module system to skip scanning the JAR
+    /// for its packages at startup. The `Main-Class` of the manifest is used as the module's main class if the
+    /// descriptor does not already declare one.
+    ///
+    /// @return A property for whether to generate the module attributes
+    Property<Boolean> getModuleAttributes();
+
+    /// Gets whether a per-version index is added to the [output JAR][#getJar()].
+    ///
+    /// The index is written to `META-INF/multi-release.idx`, directly after the manifest. For the base and every layer
+    /// version, it lists the classes and packages that become visible to runtimes of that version and the providers of
+    /// each service, where the service files of a layer replace those of the base and of lower layers. Scanners can
+    /// read this one entry instead of walking the whole JAR and resolving the versioned overlay themselves. It is
+    /// computed from the entries as they are written, without reading any class files.
+    ///
+    /// @return A property for whether to add the index
+    Property<Boolean> getLayerIndex();
+
+    /// Gets the class-load profile used to order the entries of the [output JAR][#getJar()].
+    ///
+    /// The profile can either be the output of `-Xlog:class+load` (or the legacy `-verbose:class`), or a CDS class list
+    /// as produced by `-XX:DumpLoadedClassList`. Classes found in the profile are placed at the front of the JAR in the
+    /// order they were loaded, each followed directly by its versioned overrides, so that the classes needed at startup
+    /// are read from one contiguous region of the file. All other entries keep their usual order after them.
+    ///
+    /// @return A property for the class-load profile
+    RegularFileProperty getClassLoadOrder();
+
+    /// Gets whether the [output JAR][#getJar()] reuses the already-built archive of the jar task this container was
+    /// registered with.
+    ///
+    /// When enabled, the entries of the base jar are transferred into the output JAR in their compressed form instead
+    /// of being compressed a second time. An entry is only reused if its size and CRC-32 match the file it stands for,
+    /// so a base jar that is out of date never leaks into the output. Only the manifest, which gains the
+    /// `Multi-Release` attribute, and the versioned layers are always written anew.
+    ///
+    /// @return A property for whether to reuse the base archive
+    Property<Boolean> getReuseBaseArchive();
+
+    /// Gets whether the [output JAR][#getJar()] is patched in place when it is rebuilt.
+    ///
+    /// When enabled, the entries to be written are compared with those of the previously built JAR. Unchanged entries
+    /// stay where they are, added and changed entries are appended, and only the central directory is rewritten. This
+    /// makes rebuilds after small changes, such as in continuous builds, write a fraction of the JAR. Once replaced
+    /// entries make up a quarter of the JAR, or if the manifest changes, the JAR is fully rewritten instead.
+    ///
+    /// A patched JAR holds the same entries as a fully rewritten one, but not in the same physical order, so this is
+    /// meant for development builds rather than reproducible releases.
+    ///
+    /// @return A property for whether to patch the JAR in place
+    Property<Boolean> getPatchInPlace();
+
+    /// Gets the algorithms of the checksums that are computed for the [output JAR][#getJar()] while it is written.
+    ///
+    /// Any [java.security.MessageDigest] algorithm can be used, such as `MD5`, `SHA-1`, `SHA-256` and `SHA-512`. Each
+    /// checksum is written as the hex digest to a file next to the JAR, named after the JAR with the lowercase
+    /// algorithm name without dashes as an extra extension, such as `.sha256`. These files are outputs of the JAR task,
+    /// so tasks that upload or verify the JAR can use them without reading it again.
+    ///
+    /// @return A property for the checksum algorithms
+    ListProperty<String> getChecksums();
+
+    /// Gets whether the entries of the [output JAR][#getJar()] are compressed in parallel.
+    ///
+    /// When enabled, entries are deflated independently on one thread per available processor and then written in their
+    /// usual order. The resulting JAR is identical to one compressed on a single thread.
+    ///
+    /// This only takes effect together with another option that changes how the JAR is written, such as the
+    /// [minimum runtime][#getMinimumRuntime()], [checksums][#getChecksums()] or
+    /// [base archive reuse][#getReuseBaseArchive()]. On its own, the JAR is written by Gradle as usual, so that
+    /// enabling it never changes the JAR, and a warning is reported that it has no effect.
+    ///
+    /// @return A property for whether to compress in parallel
+    Property<Boolean> getParallelCompression();
+
+    /* CLASS DATA SHARING */
+
+    /// Gets the main class that is run to train the class data sharing (CDS) archives of the [output JAR][#getJar()].
+    ///
+    /// The training run should exercise the application's startup path and then exit. It is run on the output JAR
+    /// followed by the runtime classpath of the source set this container was registered with.
+    ///
+    /// @return A property for the training main class
+    /// @see #classDataArchive(JavaLanguageVersion)
+    Property<String> getTrainingMainClass();
+
+    /// Gets the program arguments passed to the [training main class][#getTrainingMainClass()].
+    ///
+    /// @return A property for the training arguments
+    ListProperty<String> getTrainingArgs();
+
+    /// Gets the JVM arguments used for the [training run][#getTrainingMainClass()].
+    ///
+    /// @return A property for the training JVM arguments
+    ListProperty<String> getTrainingJvmArgs();
+
+    /// Registers a task that creates a CDS archive of the [output JAR][#getJar()] using the project's Java toolchain.
+    ///
+    /// The archive is added to the [software component][#getComponent()] as an optional variant with the `cds`
+    /// classifier. Like every CDS archive, it is only used if the application is started with the same runtime and the
+    /// same classpath that it was created with.
+    ///
+    /// The naming convention for this task is `${jar.name}Cds`, where `jar` is the [output JAR][#getJar()].
+    ///
+    /// @return A provider for the CDS archive task
+    TaskProvider<? extends Task> classDataArchive();
+
+    /// Registers a task that creates a CDS archive of the [output JAR][#getJar()] using a local toolchain for the given
+    /// version.
+    ///
+    /// @param version The Java version of the runtime to create the archive for (must be at least 10)
+    /// @return A provider for the CDS archive task
+    /// @see #classDataArchive(JavaLanguageVersion)
+    default TaskProvider<? extends Task> classDataArchive(@Range(from = 10, to = Integer.MAX_VALUE) int version) {
+        return classDataArchive(JavaLanguageVersion.of(version));
+    }
+
+    /// Registers a task that creates a CDS archive of the [output JAR][#getJar()] using a local toolchain for the given
+    /// version.
+    ///
+    /// Each runtime resolves its own set of versioned classes from a multi-release JAR, so an archive is created for
+    /// that runtime specifically. The archive is added to the [software component][#getComponent()] as an optional
+    /// variant with the `cds-jdk${version}` classifier.
+    ///
+    /// The naming convention for this task is `${jar.name}Cds${version}`, where `jar` is the [output JAR][#getJar()].
+    ///
+    /// @param version The Java version of the runtime to create the archive for (must be at least 10)
+    /// @return A provider for the CDS archive task
+    TaskProvider<? extends Task> classDataArchive(JavaLanguageVersion version);
+
+    /// Registers tasks that create CDS archives of the [output JAR][#getJar()] for the project's Java toolchain and for
+    /// every version that dependencies are [added][#add] to, including those added after this is called. Versions below
+    /// 10, which cannot create CDS archives, and the version of the toolchain itself are skipped.
+    ///
+    /// The toolchain must be configured before this or [#add] is called, since the version skipped is decided then.
+    /// Changing the toolchain afterwards fails the build once the tasks are configured.
+    ///
+    /// @see #classDataArchive()
+    /// @see #classDataArchive(JavaLanguageVersion)
+    void classDataArchives();
+
+    /* RUNTIME TESTS */
+
+    /// Registers a task that runs the default test suite against the [output JAR][#getJar()] using the project's Java
+    /// toolchain.
+    ///
+    /// The task is a target of the default `test` suite, so it shares its compiled test classes and test framework.
+    /// Only the classes of the source set this container was registered with are replaced by the output JAR on the
+    /// test runtime classpath. The task is cacheable and is run by `check`.
+    ///
+    /// The naming convention for this task is `${jar.name}Test`, where `jar` is the [output JAR][#getJar()].
+    ///
+    /// @return A provider for the test task
+    TaskProvider<? extends Task> runtimeTest();
+
+    /// Registers a task that runs the default test suite against the [output JAR][#getJar()] using a local toolchain
+    /// for the given version.
+    ///
+    /// @param version The Java version of the runtime to test on
+    /// @return A provider for the test task
+    /// @see #runtimeTest(JavaLanguageVersion)
+    default TaskProvider<? extends Task> runtimeTest(int version) {
+        return runtimeTest(JavaLanguageVersion.of(version));
+    }
+
+    /// Registers a task that runs the default test suite against the [output JAR][#getJar()] using a local toolchain
+    /// for the given version.
+    ///
+    /// Since the runtime loads the versioned classes of the output JAR that apply to it, this exercises the code paths
+    /// of those versioned classes. Tasks for different versions do not depend on each other, so they can run in
+    /// parallel when the build allows it, for example with the configuration cache enabled.
+    ///
+    /// The naming convention for this task is `${jar.name}Test${version}`, where `jar` is the
+    /// [output JAR][#getJar()].
+    ///
+    /// @param version The Java version of the runtime to test on
+    /// @return A provider for the test task
+    TaskProvider<? extends Task> runtimeTest(JavaLanguageVersion version);
+
+    /// Registers tasks that run the default test suite against the [output JAR][#getJar()] for the project's Java
+    /// toolchain and for every version that dependencies are [added][#add] to, including those added after this is
+    /// called. The version of the toolchain itself is only tested once.
+    ///
+    /// The toolchain must be configured before this or [#add] is called, since the version tested once is decided
+    /// then. Changing the toolchain afterwards fails the build once the tasks are configured.
+    ///
+    /// @see #runtimeTest()
+    /// @see #runtimeTest(JavaLanguageVersion)
+    void runtimeTests();
+
     /* ADDING DEPENDENCIES */
 
     /// Adds a dependency to the multi-release JAR for the given version.
@@ -108,7 +397,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -132,7 +422,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -156,7 +447,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -180,7 +472,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -204,7 +497,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -228,7 +522,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -252,7 +547,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -276,7 +572,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -300,7 +597,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -322,7 +620,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -344,7 +643,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
@@ -366,7 +666,8 @@ public interface MultiReleaseContainer {
     ///
     /// By default, the dependency will not be transitive. The given action will be run on the detached configuration
     /// used to add the dependency. This can, for example, be used to force the configuration to resolve transitively
-    /// using [Configuration#setTransitive(boolean)].
+    /// using [Configuration#setTransitive(boolean)], in which case transitive dependencies that the base already ships
+    /// are left out of the layer.
     ///
     /// @param version    The version to use (must be at least 9)
     /// @param dependency The dependency to use
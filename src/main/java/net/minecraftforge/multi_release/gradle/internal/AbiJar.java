@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import javax.inject.Inject;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/// Creates a JAR with the application binary interface (ABI) of a source set's classes, for versioned layers to compile
+/// against.
+///
+/// Every class that other code can name is kept with its non-private members, but method bodies, private members and
+/// debug information are removed. Constant values are kept, since the compiler inlines them. Anonymous, local and
+/// private nested classes are left out, along with the inner class and nest records that point to them, since they
+/// come and go with method bodies. The output therefore only changes when the ABI does, so it can be cached and shared
+/// between builds, unlike the ABI that Gradle extracts for compile avoidance on every build that uses it.
+@CacheableTask
+abstract class AbiJar extends DefaultTask {
+    @Inject
+    public AbiJar() { }
+
+    /// The class directories to extract the ABI from.
+    @CompileClasspath
+    public abstract ConfigurableFileCollection getClasses();
+
+    /// The ABI JAR to create.
+    @OutputFile
+    public abstract RegularFileProperty getArchiveFile();
+
+    @TaskAction
+    protected void exec() {
+        var archive = this.getArchiveFile().get().getAsFile();
+
+        try {
+            // Sorted by name, so the JAR does not depend on the order the file system lists classes in
+            var classes = new TreeMap<String, Path>();
+            for (var root : this.getClasses().getFiles()) {
+                if (!root.isDirectory()) continue;
+
+                try (var files = Files.walk(root.toPath())) {
+                    files.filter(file -> file.toString().endsWith(".class") && Files.isRegularFile(file))
+                         .sorted(Comparator.naturalOrder())
+                         .forEach(file -> classes.putIfAbsent(root.toPath().relativize(file).toString().replace('\\', '/'), file));
+                }
+            }
+
+            var entries = new ArrayList<ArchiveEntry>(classes.size());
+            for (var entry : classes.entrySet()) {
+                var stripped = strip(Files.readAllBytes(entry.getValue()));
+                if (stripped != null)
+                    entries.add(ArchiveEntry.of(entry.getKey(), MultiReleaseCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES, stripped));
+            }
+
+            try (var compressor = new EntryCompressor(true, 1);
+                 var writer = new ZipWriter(new BufferedOutputStream(new FileOutputStream(archive)), StandardCharsets.UTF_8, false)) {
+                compressor.writeAll(entries, writer);
+            }
+        } catch (IOException e) {
+            throw new GradleException("Could not create ABI JAR '%s'.".formatted(archive), e);
+        }
+    }
+
+    /// Strips the given class down to its ABI.
+    ///
+    /// @return The stripped class, or `null` if the class cannot be named outside its own code
+    private static byte @Nullable [] strip(byte[] bytes) {
+        var reader = new ClassReader(bytes);
+        var self = reader.getClassName();
+        var hidden = new boolean[1];
+        var writer = new ClassWriter(0);
+        reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            // The names used by the kept declarations, and the inner classes to write once they are all known
+            private final StringBuilder references = new StringBuilder();
+            private final List<InnerClass> innerClasses = new ArrayList<>();
+
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                this.reference(signature, superName);
+                if (interfaces != null) this.reference(interfaces);
+                super.visit(version, access, name, signature, superName, interfaces);
+            }
+
+            @Override
+            public void visitInnerClass(String name, String outerName, String innerName, int access) {
+                if (!isHidden(outerName, innerName, access))
+                    this.innerClasses.add(new InnerClass(name, outerName, innerName, access));
+                else if (name.equals(self))
+                    hidden[0] = true;
+            }
+
+            // Nests only control private access at runtime, and list every anonymous and local class
+            @Override
+            public void visitNestHost(String nestHost) { }
+
+            @Override
+            public void visitNestMember(String nestMember) { }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                if (isHidden(access)) return null;
+
+                this.reference(descriptor, signature);
+                return super.visitField(access, name, descriptor, signature, value);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (isHidden(access)) return null;
+
+                this.reference(descriptor, signature);
+                if (exceptions != null) this.reference(exceptions);
+                return super.visitMethod(access, name, descriptor, signature, exceptions);
+            }
+
+            @Override
+            public void visitEnd() {
+                // Inner classes of other classes are only recorded if the kept declarations use them, since the
+                // method bodies that were removed add records of their own, such as `MethodHandles$Lookup` for lambdas
+                for (var inner : this.innerClasses) {
+                    if (inner.name.equals(self) || self.equals(inner.outerName) || this.references.indexOf(inner.name) >= 0)
+                        super.visitInnerClass(inner.name, inner.outerName, inner.innerName, inner.access);
+                }
+                super.visitEnd();
+            }
+
+            private void reference(String... names) {
+                for (var name : names) {
+                    if (name != null)
+                        this.references.append(name).append(' ');
+                }
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return hidden[0] ? null : writer.toByteArray();
+    }
+
+    private record InnerClass(String name, String outerName, String innerName, int access) { }
+
+    private static boolean isHidden(@Nullable String outerName, @Nullable String innerName, int access) {
+        // Anonymous classes have no simple name, and local classes have no outer class
+        return innerName == null || outerName == null || isHidden(access);
+    }
+
+    private static boolean isHidden(int access) {
+        return (access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC)) != 0;
+    }
+}
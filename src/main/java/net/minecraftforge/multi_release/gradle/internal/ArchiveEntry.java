@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/// A single entry of a multi-release JAR, held in memory between being read from the copy spec and being written.
+///
+/// The content of an entry is either held as-is, or in the stored form it was taken from another archive in. In the
+/// latter case the content is only inflated if it is actually needed, and the stored form is written back unchanged.
+final class ArchiveEntry {
+    static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    private static final int DIR_FLAG = 0040000;
+    private static final int FILE_FLAG = 0100000;
+
+    final String name;
+    final long time;
+    final int mode;
+    private byte @Nullable [] data;
+    private final ZipWriter.@Nullable Data stored;
+
+    private ArchiveEntry(String name, long time, int mode, byte @Nullable [] data, ZipWriter.@Nullable Data stored) {
+        this.name = name;
+        this.time = time;
+        this.mode = mode;
+        this.data = data;
+        this.stored = stored;
+    }
+
+    static ArchiveEntry of(FileCopyDetailsInternal details, long time) {
+        var name = details.getRelativePath().getPathString();
+        var mode = details.getPermissions().toUnixNumeric();
+        if (details.isDirectory())
+            return new ArchiveEntry(name + '/', time, DIR_FLAG | mode, null, null);
+
+        var out = new ByteArrayOutputStream((int) Math.max(32, Math.min(details.getSize(), Integer.MAX_VALUE - 8)));
+        details.copyTo(out);
+        return new ArchiveEntry(name, time, FILE_FLAG | mode, out.toByteArray(), null);
+    }
+
+    /// Creates an entry that is not backed by a file of the copy spec.
+    ///
+    /// @param name The name of the entry, ending with `/` for directories
+    /// @param time The timestamp of the entry
+    /// @param data The content of the entry
+    /// @return The entry
+    static ArchiveEntry of(String name, long time, byte[] data) {
+        return name.endsWith("/")
+            ? new ArchiveEntry(name, time, DIR_FLAG | 0755, null, null)
+            : new ArchiveEntry(name, time, FILE_FLAG | 0644, data, null);
+    }
+
+    /// Creates a copy of this entry that is written in the given stored form from another archive, instead of being
+    /// compressed again.
+    ///
+    /// @param stored The stored form of this entry's content
+    /// @return The new entry
+    ArchiveEntry withStored(ZipWriter.Data stored) {
+        return new ArchiveEntry(this.name, this.time, this.mode, this.data, stored);
+    }
+
+    /// Creates a copy of this entry with the given content.
+    ///
+    /// @param data The new content
+    /// @return The new entry
+    ArchiveEntry withData(byte[] data) {
+        return new ArchiveEntry(this.name, this.time, this.mode, data, null);
+    }
+
+    /// Creates a copy of this entry with the given name, keeping its content in whichever form it is held.
+    ///
+    /// @param name The new name
+    /// @return The new entry
+    ArchiveEntry withName(String name) {
+        return new ArchiveEntry(name, this.time, this.mode, this.data, this.stored);
+    }
+
+    boolean isDirectory() {
+        return this.name.endsWith("/");
+    }
+
+    /// Gets the uncompressed content of this entry, inflating it from its stored form if needed.
+    ///
+    /// @return The content, which is empty for directories
+    byte[] data() {
+        if (this.data == null)
+            this.data = this.stored != null ? inflate(this.stored) : new byte[0];
+
+        return this.data;
+    }
+
+    /// Gets the stored form this entry was taken from.
+    ///
+    /// @return The stored form, or `null` if this entry was not taken from another archive
+    ZipWriter.@Nullable Data stored() {
+        return this.stored;
+    }
+
+    private static byte[] inflate(ZipWriter.Data stored) {
+        if (stored.method() == ZipWriter.STORED)
+            return stored.bytes();
+
+        var inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored.bytes());
+            var ret = new byte[Math.toIntExact(stored.size())];
+            int count = 0;
+            while (count < ret.length && !inflater.finished()) {
+                int read = inflater.inflate(ret, count, ret.length - count);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                count += read;
+            }
+
+            if (count != ret.length)
+                throw new DataFormatException("Expected " + ret.length + " bytes, inflated " + count);
+
+            return ret;
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Invalid compressed data", e));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /// Gets the layer version of this entry.
+    ///
+    /// @return The version this entry belongs to, or `0` if it is part of the base
+    int version() {
+        return version(this.name);
+    }
+
+    /// Gets the layer version of the entry with the given name.
+    ///
+    /// @param name The name of the entry
+    /// @return The version the entry belongs to, or `0` if it is part of the base
+    static int version(String name) {
+        if (!name.startsWith(VERSIONS_PREFIX))
+            return 0;
+
+        var end = name.indexOf('/', VERSIONS_PREFIX.length());
+        if (end < 0)
+            return 0;
+
+        try {
+            return Integer.parseInt(name, VERSIONS_PREFIX.length(), end, 10);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /// Gets the path of this entry as seen by the runtime, with any `META-INF/versions/N/` prefix removed.
+    ///
+    /// @return The unversioned path
+    String path() {
+        if (this.version() == 0)
+            return this.name;
+
+        return this.name.substring(this.name.indexOf('/', VERSIONS_PREFIX.length()) + 1);
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
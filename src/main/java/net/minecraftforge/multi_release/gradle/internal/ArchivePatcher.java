@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/// Patches a previously written archive in place, so that only the entries that were added or changed are written.
+///
+/// Every entry of the new archive is compared with the entry of the same name in the previous archive. Unchanged
+/// entries keep their local entry where it is, changed and added entries are appended after the last local entry, and
+/// the central directory is rewritten to list the new entries in their usual order. Removed and replaced local entries
+/// are left behind as unreferenced space, which is reclaimed by a full rewrite once it makes up too much of the
+/// archive.
+///
+/// Since the local entries are no longer in their usual order, a patched archive is equivalent to, but not identical
+/// with, a fully written one.
+final class ArchivePatcher {
+    /// The share of the previous archive that may be unreferenced before it is fully rewritten instead.
+    private static final double MAX_FRAGMENTATION = 0.25;
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    private final File archive;
+    private final long offset;
+    private final Map<String, ZipReader.Entry> kept;
+
+    private ArchivePatcher(File archive, long offset, Map<String, ZipReader.Entry> kept) {
+        this.archive = archive;
+        this.offset = offset;
+        this.kept = kept;
+    }
+
+    /// Plans patching the given archive so that it holds the given entries.
+    ///
+    /// @param archive  The previously written archive
+    /// @param charset  The charset of entry names
+    /// @param compress Whether entries are deflated
+    /// @param entries  The entries the archive should hold
+    /// @return The patcher, or `null` if the archive should be fully rewritten
+    static @Nullable ArchivePatcher plan(File archive, Charset charset, boolean compress, List<ArchiveEntry> entries) {
+        if (!archive.isFile())
+            return null;
+
+        try (var previous = new ZipReader(archive, charset)) {
+            var names = new HashSet<String>();
+            var duplicates = new HashSet<String>();
+            for (var entry : entries) {
+                if (!names.add(entry.name))
+                    duplicates.add(entry.name);
+            }
+
+            var kept = new HashMap<String, ZipReader.Entry>();
+            long live = 0;
+            for (var entry : entries) {
+                var existing = previous.get(entry.name);
+                if (existing == null || duplicates.contains(entry.name) || !matches(existing, entry, compress))
+                    continue;
+
+                kept.put(entry.name, existing);
+                live += 30 + entry.name.getBytes(charset).length + existing.compressedSize();
+            }
+
+            // Streaming readers expect the manifest at the start, so it cannot be appended
+            if (names.contains(MANIFEST) && !kept.containsKey(MANIFEST))
+                return null;
+
+            var offset = previous.centralDirectoryOffset();
+            if (offset - live > offset * MAX_FRAGMENTATION)
+                return null;
+
+            return new ArchivePatcher(archive, offset, kept);
+        } catch (IOException e) {
+            // The previous archive is unreadable, for example if the last build failed while writing it
+            return null;
+        }
+    }
+
+    private static boolean matches(ZipReader.Entry existing, ArchiveEntry entry, boolean compress) {
+        if (existing.mode() != entry.mode || existing.dosTime() != ZipWriter.dosTime(entry.time))
+            return false;
+
+        if (entry.isDirectory())
+            return existing.method() == ZipWriter.STORED && existing.size() == 0;
+
+        if (existing.method() != (compress ? ZipWriter.DEFLATED : ZipWriter.STORED))
+            return false;
+
+        var stored = entry.stored();
+        if (stored != null)
+            return existing.crc() == stored.crc() && existing.size() == stored.size();
+
+        var data = entry.data();
+        if (existing.size() != data.length)
+            return false;
+
+        var crc = new CRC32();
+        crc.update(data);
+        return existing.crc() == crc.getValue();
+    }
+
+    /// Opens a writer that appends to the archive after its last local entry, keeping its unchanged entries.
+    ZipWriter open(Charset charset, boolean zip64) throws IOException {
+        try (var channel = FileChannel.open(this.archive.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(this.offset);
+        }
+
+        return new ZipWriter(new BufferedOutputStream(new FileOutputStream(this.archive, true)), charset, zip64, this.offset, this.kept);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/// Folds the layers that every supported runtime would use into the base of a multi-release JAR.
+///
+/// A runtime uses the highest layer at or below its own version for each entry. If no runtime below the baseline is
+/// supported, the entries of those layers always win over the base, so they can replace it. This removes the dead base
+/// and layer entries and leaves fewer versioned entries for the runtime to index.
+///
+/// The metadata of layers, such as their service files, is never folded, since runtimes do not read it from a layer.
+final class BaselineLayers {
+    private BaselineLayers() { }
+
+    /// Folds the layers at or below the given baseline into the base.
+    ///
+    /// For every path, the entry of the highest layer at or below the baseline takes the place of the base entry, or is
+    /// added where the first entry of that path was. Layers above the baseline are left as they are.
+    ///
+    /// @param entries  The entries of the archive
+    /// @param baseline The minimum runtime version of the archive
+    /// @return The entries with the layers folded
+    static List<ArchiveEntry> apply(List<ArchiveEntry> entries, int baseline) {
+        // First find the entry each runtime at the baseline would see for every path
+        var selected = new HashMap<String, ArchiveEntry>();
+        for (var entry : entries) {
+            var version = entry.version();
+            if (version > baseline || isLayerMetadata(entry)) continue;
+
+            var path = entry.path();
+            var current = selected.get(path);
+            if (current == null || version > current.version())
+                selected.put(path, entry);
+        }
+
+        // Then write them in place of the first entry of their path
+        var ret = new LinkedHashMap<String, ArchiveEntry>(entries.size() * 2);
+        var layers = new ArrayList<ArchiveEntry>();
+        for (var entry : entries) {
+            if (entry.version() > baseline || isLayerMetadata(entry)) {
+                layers.add(entry);
+                continue;
+            }
+
+            var path = entry.path();
+            if (path.isEmpty() || ret.containsKey(path)) continue;
+
+            var winner = selected.get(path);
+            ret.put(path, winner.version() == 0 ? winner : winner.withName(path));
+        }
+
+        var result = new ArrayList<ArchiveEntry>(ret.size() + layers.size());
+        result.addAll(ret.values());
+        result.addAll(layers);
+        return result;
+    }
+
+    private static boolean isLayerMetadata(ArchiveEntry entry) {
+        return entry.version() > 0 && entry.path().startsWith("META-INF/");
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.gradle.api.InvalidUserDataException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/// Computes the checksums of an archive while it is written, and writes them as sidecar files next to it.
+///
+/// Each sidecar holds the lowercase hex digest of the archive, as Maven repositories expect. Its extension is the
+/// lowercase algorithm name without dashes, so `SHA-256` is written to `${archive}.sha256`.
+final class Checksums {
+    private final Map<String, MessageDigest> digests = new LinkedHashMap<>();
+
+    Checksums(List<String> algorithms) {
+        for (var algorithm : algorithms) {
+            try {
+                this.digests.put(algorithm, MessageDigest.getInstance(algorithm));
+            } catch (NoSuchAlgorithmException e) {
+                throw new InvalidUserDataException("Unsupported checksum algorithm '%s'.".formatted(algorithm), e);
+            }
+        }
+    }
+
+    /// Gets the sidecar file of the given archive for the given algorithm.
+    static File file(File archive, String algorithm) {
+        return new File(archive.getParentFile(), archive.getName() + '.' + algorithm.replace("-", "").toLowerCase(Locale.ROOT));
+    }
+
+    /// Wraps the given stream so that everything written to it is digested.
+    OutputStream wrap(OutputStream out) {
+        for (var digest : this.digests.values())
+            out = new DigestOutputStream(out, digest);
+        return out;
+    }
+
+    /// Digests the given file from the start, for archives that were not fully written through [#wrap].
+    void digest(File file) throws IOException {
+        for (var digest : this.digests.values())
+            digest.reset();
+
+        try (var in = new FileInputStream(file)) {
+            var buffer = new byte[65536];
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                for (var digest : this.digests.values())
+                    digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    /// Writes the sidecar files of the given archive.
+    void write(File archive) throws IOException {
+        for (var entry : this.digests.entrySet())
+            Files.writeString(file(archive, entry.getKey()).toPath(), HexFormat.of().formatHex(entry.getValue().digest()), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.ExecOperations;
+import org.gradle.work.DisableCachingByDefault;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/// Generates an application class data sharing (AppCDS) archive by running a training entry point on the multi-release
+/// JAR with a specific Java runtime.
+///
+/// Each runtime resolves its own set of versioned classes from the JAR, so the archive is only valid for the runtime it
+/// was created with, and only when the application is later started with the same classpath.
+@DisableCachingByDefault(because = "CDS archives are only valid for the exact Java runtime that created them")
+abstract class ClassDataArchive extends DefaultTask {
+    protected abstract @Inject ExecOperations getExecOperations();
+
+    @Inject
+    public ClassDataArchive() { }
+
+    /// The Java launcher of the runtime to create the archive for.
+    @Nested
+    public abstract Property<JavaLauncher> getLauncher();
+
+    /// The classpath to train on, starting with the multi-release JAR.
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    /// The main class of the training run.
+    @Input
+    public abstract Property<String> getMainClass();
+
+    /// The program arguments of the training run.
+    @Input
+    public abstract ListProperty<String> getArgs();
+
+    /// The JVM arguments of the training run.
+    @Input
+    public abstract ListProperty<String> getJvmArgs();
+
+    /// The CDS archive to create.
+    @OutputFile
+    public abstract RegularFileProperty getArchiveFile();
+
+    @TaskAction
+    protected void exec() {
+        var launcher = this.getLauncher().get();
+        var version = launcher.getMetadata().getLanguageVersion().asInt();
+        var archive = this.getArchiveFile().get().getAsFile();
+
+        if (version >= 13) {
+            // Dynamic archiving stores the classes loaded by the training run when the JVM exits
+            this.train(launcher, List.of("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath()));
+        } else if (version >= 10) {
+            // Older runtimes need the loaded class list to be dumped first and the archive to be created from it
+            var classList = new File(this.getTemporaryDir(), "classes.lst");
+            var appCds = version == 10 ? List.of("-XX:+UseAppCDS") : List.<String>of();
+
+            var dumpClassList = new ArrayList<>(appCds);
+            dumpClassList.add("-Xshare:off");
+            dumpClassList.add("-XX:DumpLoadedClassList=" + classList.getAbsolutePath());
+            this.train(launcher, dumpClassList);
+
+            var dumpArchive = new ArrayList<>(appCds);
+            dumpArchive.add("-Xshare:dump");
+            dumpArchive.add("-XX:SharedClassListFile=" + classList.getAbsolutePath());
+            dumpArchive.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+            this.train(launcher, dumpArchive);
+        } else {
+            throw new IllegalStateException("Application class data sharing requires Java 10 or later, but the given launcher is for Java " + version);
+        }
+    }
+
+    private void train(JavaLauncher launcher, List<String> jvmArgs) {
+        this.getExecOperations().javaexec(spec -> {
+            spec.setExecutable(launcher.getExecutablePath().getAsFile().getAbsolutePath());
+            spec.classpath(this.getClasspath());
+            spec.jvmArgs(this.getJvmArgs().get());
+            spec.jvmArgs(jvmArgs);
+            spec.getMainClass().set(this.getMainClass());
+            spec.args(this.getArgs().get());
+        });
+    }
+}
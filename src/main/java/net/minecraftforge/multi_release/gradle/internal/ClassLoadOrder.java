@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Reads class-load profiles and orders archive entries so that the classes loaded at startup sit at the front.
+///
+/// The following formats are understood, and may be mixed:
+/// - Unified JVM logging from `-Xlog:class+load`, i.e. `[0.012s][info][class,load] java.lang.Object source: ...`
+/// - Legacy `-verbose:class` output, i.e. `[Loaded java.lang.Object from ...]`
+/// - CDS class lists from `-XX:DumpLoadedClassList`, i.e. `java/lang/Object id: 0`
+final class ClassLoadOrder {
+    private ClassLoadOrder() { }
+
+    /// Reads the given class-load profile.
+    ///
+    /// @param file The profile to read
+    /// @return The internal names of the loaded classes, in the order they were first loaded
+    static List<String> read(File file) throws IOException {
+        var classes = new LinkedHashMap<String, Boolean>();
+        for (var line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            var name = parse(line.strip());
+            if (name != null)
+                classes.putIfAbsent(name, Boolean.TRUE);
+        }
+
+        return new ArrayList<>(classes.keySet());
+    }
+
+    private static @Nullable String parse(String line) {
+        if (line.isEmpty() || line.startsWith("#") || line.startsWith("@"))
+            return null;
+
+        if (line.startsWith("[Loaded ")) {
+            line = line.substring("[Loaded ".length());
+        } else {
+            // Strip the decorations of unified logging, such as [0.012s][info][class,load]
+            while (line.startsWith("[")) {
+                var end = line.indexOf(']');
+                if (end < 0)
+                    return null;
+                line = line.substring(end + 1).stripLeading();
+            }
+        }
+
+        var end = line.indexOf(' ');
+        var name = end < 0 ? line : line.substring(0, end);
+        if (name.isEmpty() || name.endsWith(":") || name.contains("/0x"))
+            return null; // not a class, or a hidden class that is never read from the jar
+
+        if (name.endsWith(".class"))
+            name = name.substring(0, name.length() - ".class".length());
+
+        return name.replace('.', '/');
+    }
+
+    /// Orders the given entries using the given class-load profile.
+    ///
+    /// The manifest and the [layer index][LayerIndex] are always kept first. Class entries that appear in the profile
+    /// follow them in load order, with each class' versioned overrides placed directly after its base entry. All other
+    /// entries keep their original order.
+    ///
+    /// @param entries The entries to order
+    /// @param classes The internal names of the loaded classes, in load order
+    /// @return The ordered entries
+    static List<ArchiveEntry> sort(List<ArchiveEntry> entries, List<String> classes) {
+        Map<String, Integer> ranks = new HashMap<>(classes.size() * 2);
+        for (int i = 0; i < classes.size(); i++)
+            ranks.put(classes.get(i), i);
+
+        var head = new ArrayList<ArchiveEntry>();
+        var hot = new ArrayList<Ranked>();
+        var rest = new ArrayList<ArchiveEntry>();
+        for (var entry : entries) {
+            if (entry.name.equals("META-INF/") || entry.name.equals("META-INF/MANIFEST.MF") || entry.name.equals(LayerIndex.NAME)) {
+                head.add(entry);
+                continue;
+            }
+
+            var path = entry.path();
+            var rank = path.endsWith(".class") ? ranks.get(path.substring(0, path.length() - ".class".length())) : null;
+            if (rank != null)
+                hot.add(new Ranked(entry, rank, entry.version()));
+            else
+                rest.add(entry);
+        }
+
+        hot.sort(null);
+
+        var ret = new ArrayList<ArchiveEntry>(entries.size());
+        ret.addAll(head);
+        for (var ranked : hot)
+            ret.add(ranked.entry);
+        ret.addAll(rest);
+        return ret;
+    }
+
+    private record Ranked(ArchiveEntry entry, int rank, int version) implements Comparable<Ranked> {
+        @Override
+        public int compareTo(Ranked o) {
+            int ret = Integer.compare(this.rank, o.rank);
+            return ret != 0 ? ret : Integer.compare(this.version, o.version);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/// Prepares the data of archive entries and hands it to a [ZipWriter], compressing either serially or on a thread pool.
+///
+/// Every entry is deflated on its own with the same settings, so the written archive is byte-for-byte identical no
+/// matter how many threads are used. Entries are always written in the order they are given; only the compression runs
+/// ahead.
+final class EntryCompressor implements Closeable {
+    private final boolean compress;
+    private final int threads;
+    private final @Nullable ExecutorService executor;
+
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final List<Deflater> allDeflaters = new ArrayList<>();
+
+    EntryCompressor(boolean compress, int threads) {
+        this.compress = compress;
+        this.threads = Math.max(1, threads);
+
+        if (this.compress && this.threads > 1) {
+            var count = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+                var thread = new Thread(runnable, "multi-release-deflate-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    void writeAll(List<ArchiveEntry> entries, ZipWriter writer) throws IOException {
+        var sink = this.open(writer);
+        for (var entry : entries)
+            sink.write(entry);
+        sink.finish();
+    }
+
+    /// Opens a sink that entries can be written to one at a time, for archives that are written as they are read.
+    Sink open(ZipWriter writer) {
+        return new Sink(writer);
+    }
+
+    /// Writes entries to a [ZipWriter] in the order they are given, compressing them ahead of the writer.
+    ///
+    /// Only a bounded window of entries is compressing at any time, so memory use does not grow with the archive.
+    final class Sink {
+        private final ZipWriter writer;
+        private final ArrayDeque<Pending> pending;
+        private final int window;
+
+        private Sink(ZipWriter writer) {
+            this.writer = writer;
+            this.window = EntryCompressor.this.threads * 4;
+            this.pending = new ArrayDeque<>(this.window);
+        }
+
+        void write(ArchiveEntry entry) throws IOException {
+            var executor = EntryCompressor.this.executor;
+            if (executor == null) {
+                this.writer.write(entry, this.writer.keeps(entry) ? ZipWriter.Data.EMPTY : EntryCompressor.this.prepare(entry));
+                return;
+            }
+
+            if (this.pending.size() >= this.window)
+                this.writeNext();
+
+            this.pending.add(new Pending(entry, this.writer.keeps(entry)
+                ? CompletableFuture.completedFuture(ZipWriter.Data.EMPTY)
+                : executor.submit(() -> EntryCompressor.this.prepare(entry))));
+        }
+
+        /// Writes the entries that are still compressing.
+        void finish() throws IOException {
+            while (!this.pending.isEmpty())
+                this.writeNext();
+        }
+
+        private void writeNext() throws IOException {
+            var next = this.pending.remove();
+            this.writer.write(next.entry, await(next.data));
+        }
+    }
+
+    private record Pending(ArchiveEntry entry, Future<ZipWriter.Data> data) { }
+
+    private ZipWriter.Data prepare(ArchiveEntry entry) {
+        if (entry.isDirectory())
+            return ZipWriter.Data.EMPTY;
+
+        // Entries taken from another archive are transferred as they are, unless they are stored the wrong way
+        var stored = entry.stored();
+        if (stored != null && stored.method() == (this.compress ? ZipWriter.DEFLATED : ZipWriter.STORED))
+            return stored;
+
+        if (!this.compress)
+            return ZipWriter.Data.of(entry.data(), null);
+
+        var deflater = this.deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            synchronized (this.allDeflaters) {
+                this.allDeflaters.add(deflater);
+            }
+        }
+
+        try {
+            return ZipWriter.Data.of(entry.data(), deflater);
+        } finally {
+            this.deflaters.add(deflater);
+        }
+    }
+
+    private static ZipWriter.Data await(Future<ZipWriter.Data> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing entries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IOException("Failed to compress entry", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+
+            // Deflaters that are still in use by a running task must not be ended under it, so if the tasks do not
+            // finish, the deflaters are left to be cleaned up once they are unreachable instead
+            try {
+                if (!this.executor.awaitTermination(1, TimeUnit.MINUTES))
+                    return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        synchronized (this.allDeflaters) {
+            for (var deflater : this.allDeflaters)
+                deflater.end();
+        }
+    }
+}
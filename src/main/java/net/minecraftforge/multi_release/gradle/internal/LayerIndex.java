@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/// Generates an index of the classes, packages and service providers of a multi-release JAR for each runtime version.
+///
+/// The index is a UTF-8 text entry placed directly after the manifest, so that scanners can read it instead of walking
+/// every entry and resolving the versioned overlay themselves. Its format is:
+///
+/// ```
+/// Multi-Release-Index-Version: 1
+/// @0
+/// C com.example.Foo
+/// P com/example
+/// S com.example.spi.Service com.example.ServiceImpl
+/// @11
+/// C com.example.Java11Only
+/// S com.example.spi.Service com.example.ServiceImpl com.example.Java11Impl
+/// ```
+///
+/// Each `@N` line starts the section of runtime version `N`, where `0` is the base. A section lists the classes (`C`)
+/// and packages (`P`) that first become visible to runtimes of that version. What a runtime sees is therefore the union
+/// of every section up to its version. A service line (`S`) gives the complete list of providers of a service from
+/// the `META-INF/services/` files of the base and of the layers, where the file of a higher version replaces those of
+/// lower ones. It is only listed in the sections where that list changes. `ServiceLoader` only reads the service files
+/// of the base, so the lines of layer sections are for scanners that select providers by version themselves.
+///
+/// The index carries the timestamp of the manifest, so that it is as reproducible as the rest of the archive.
+final class LayerIndex {
+    static final String NAME = "META-INF/multi-release.idx";
+
+    private static final String SERVICES = "META-INF/services/";
+
+    private LayerIndex() { }
+
+    static List<ArchiveEntry> apply(List<ArchiveEntry> entries) {
+        var time = MultiReleaseCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES;
+        var sections = new TreeMap<Integer, Section>();
+        var classes = new HashSet<String>();
+        var packages = new HashSet<String>();
+        var services = new HashMap<String, List<String>>();
+
+        // Lower versions are processed first, so every name is listed in the first section it is visible in
+        var byVersion = new TreeMap<Integer, List<ArchiveEntry>>();
+        for (var entry : entries) {
+            if (entry.name.equals("META-INF/MANIFEST.MF"))
+                time = entry.time;
+            if (!entry.isDirectory() && !entry.name.equals(NAME))
+                byVersion.computeIfAbsent(entry.version(), k -> new ArrayList<>()).add(entry);
+        }
+
+        for (var version : byVersion.entrySet()) {
+            var section = sections.computeIfAbsent(version.getKey(), k -> new Section());
+            for (var entry : version.getValue()) {
+                var path = entry.path();
+                if (path.startsWith(SERVICES) && path.indexOf('/', SERVICES.length()) < 0) {
+                    var service = path.substring(SERVICES.length());
+                    var providers = providers(entry.data());
+                    if (!providers.equals(services.put(service, providers)))
+                        section.services.put(service, providers);
+                    continue;
+                }
+
+                if (path.startsWith("META-INF/"))
+                    continue;
+
+                var pkg = ModuleAttributes.packageOf(path);
+                if (!pkg.isEmpty() && ModuleAttributes.isPackageName(pkg) && packages.add(pkg))
+                    section.packages.add(pkg);
+
+                if (path.endsWith(".class") && !path.endsWith("module-info.class") && !path.endsWith("package-info.class")) {
+                    var name = path.substring(0, path.length() - ".class".length()).replace('/', '.');
+                    if (classes.add(name))
+                        section.classes.add(name);
+                }
+            }
+        }
+
+        var index = ArchiveEntry.of(NAME, time, write(sections));
+
+        // Place the index right after the manifest, replacing any index that was copied in
+        var ret = new ArrayList<ArchiveEntry>(entries.size() + 1);
+        var added = false;
+        for (var entry : entries) {
+            if (entry.name.equals(NAME))
+                continue;
+
+            ret.add(entry);
+            if (!added && entry.name.equals("META-INF/MANIFEST.MF")) {
+                ret.add(index);
+                added = true;
+            }
+        }
+
+        if (!added)
+            ret.add(0, index);
+
+        return ret;
+    }
+
+    private static List<String> providers(byte[] data) {
+        var ret = new ArrayList<String>();
+        for (var line : new String(data, StandardCharsets.UTF_8).split("\n")) {
+            var comment = line.indexOf('#');
+            var provider = (comment >= 0 ? line.substring(0, comment) : line).strip();
+            if (!provider.isEmpty() && !ret.contains(provider))
+                ret.add(provider);
+        }
+        return ret;
+    }
+
+    private static byte[] write(Map<Integer, Section> sections) {
+        var builder = new StringBuilder("Multi-Release-Index-Version: 1\n");
+        for (var section : sections.entrySet()) {
+            builder.append('@').append(section.getKey()).append('\n');
+            for (var name : section.getValue().classes)
+                builder.append("C ").append(name).append('\n');
+            for (var pkg : section.getValue().packages)
+                builder.append("P ").append(pkg).append('\n');
+            for (var service : section.getValue().services.entrySet()) {
+                builder.append("S ").append(service.getKey());
+                for (var provider : service.getValue())
+                    builder.append(' ').append(provider);
+                builder.append('\n');
+            }
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class Section {
+        private final TreeSet<String> classes = new TreeSet<>();
+        private final TreeSet<String> packages = new TreeSet<>();
+        private final Map<String, List<String>> services = new TreeMap<>();
+    }
+}
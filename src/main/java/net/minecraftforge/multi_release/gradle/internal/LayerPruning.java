@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.gradle.api.InvalidUserDataException;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/// Removes the classes of versioned layers that nothing can reach.
+///
+/// The roots are every layer class that overrides an entry of the base or of a lower layer, every `module-info` and
+/// `package-info`, the service providers listed in the layers, the layer classes named by any class of the base, and
+/// the layer classes matching a keep rule. From there, the constant pools of the reachable layer classes are walked for
+/// the names of other layer classes. Layer classes that are never reached, and the directories left empty by them, are
+/// removed. The base is never changed.
+///
+/// The base is scanned because it commonly picks an implementation that only exists in a layer by name, such as
+/// `Class.forName("pkg.Java11Impl")`, which would otherwise leave nothing to reach that class from.
+///
+/// A reference is any UTF-8 constant that is a class name, contains one as a descriptor or signature type, or is one in
+/// its binary form, such as the argument of `Class.forName`. This over-approximates what the class can load, so that
+/// only classes which cannot be named by the layer are removed. Since a class of one layer can be used by runtimes of
+/// any higher version, reachability is shared by all layers. Classes that are only loaded by names built at runtime
+/// must be kept with a rule.
+final class LayerPruning {
+    private static final String SERVICES = "META-INF/services/";
+
+    private LayerPruning() { }
+
+    /// Removes the unreachable classes of the versioned layers.
+    ///
+    /// @param entries The entries of the archive
+    /// @param keep    The keep rules, as binary class names where `*` matches within a package and `**` across packages
+    /// @return The entries without the unreachable layer classes
+    static List<ArchiveEntry> apply(List<ArchiveEntry> entries, List<String> keep) throws IOException {
+        var rules = new ArrayList<Pattern>(keep.size());
+        for (var rule : keep)
+            rules.add(compile(rule));
+
+        // The lowest version of every path, to find the layer classes that override something
+        var lowest = new HashMap<String, Integer>();
+        for (var entry : entries) {
+            if (!entry.isDirectory())
+                lowest.merge(entry.path(), entry.version(), Math::min);
+        }
+
+        var classes = new HashMap<String, List<ArchiveEntry>>();
+        var base = new ArrayList<ArchiveEntry>();
+        var queue = new ArrayDeque<String>();
+        var live = new HashSet<String>();
+        for (var entry : entries) {
+            var version = entry.version();
+            var path = entry.path();
+            if (entry.isDirectory())
+                continue;
+
+            if (version == 0) {
+                if (path.endsWith(".class"))
+                    base.add(entry);
+                continue;
+            }
+
+            if (path.startsWith(SERVICES)) {
+                for (var provider : providers(entry.data()))
+                    mark(provider.replace('.', '/'), live, queue);
+                continue;
+            }
+
+            if (!path.endsWith(".class"))
+                continue;
+
+            var name = path.substring(0, path.length() - ".class".length());
+            classes.computeIfAbsent(name, k -> new ArrayList<>()).add(entry);
+
+            if (lowest.get(path) < version || name.endsWith("module-info") || name.endsWith("package-info") || matches(rules, name))
+                mark(name, live, queue);
+        }
+
+        // The layer classes the base names, which it can only load by name since they are not in the base
+        for (var entry : base) {
+            for (var constant : utf8Constants(entry.data()))
+                references(constant, classes.keySet(), live, queue);
+        }
+
+        for (String name; (name = queue.poll()) != null; ) {
+            var layers = classes.get(name);
+            if (layers == null) continue;
+
+            for (var entry : layers) {
+                for (var constant : utf8Constants(entry.data()))
+                    references(constant, classes.keySet(), live, queue);
+            }
+        }
+
+        var ret = new ArrayList<ArchiveEntry>(entries.size());
+        var before = new HashSet<String>();
+        var after = new HashSet<String>();
+        for (var entry : entries) {
+            if (entry.version() == 0 || entry.isDirectory()) {
+                ret.add(entry);
+                continue;
+            }
+
+            addParents(entry.name, before);
+            var path = entry.path();
+            if (!path.endsWith(".class") || live.contains(path.substring(0, path.length() - ".class".length()))) {
+                ret.add(entry);
+                addParents(entry.name, after);
+            }
+        }
+
+        // Remove the layer directories that only held removed classes
+        ret.removeIf(entry -> entry.version() != 0 && entry.isDirectory() && before.contains(entry.name) && !after.contains(entry.name));
+        return ret;
+    }
+
+    private static void mark(String name, Set<String> live, ArrayDeque<String> queue) {
+        if (live.add(name))
+            queue.add(name);
+    }
+
+    private static void references(String constant, Set<String> classes, Set<String> live, ArrayDeque<String> queue) {
+        // The constant itself, as an internal name, an array descriptor or a binary name
+        var name = constant.replace('.', '/');
+        while (name.startsWith("["))
+            name = name.substring(1);
+        if (name.startsWith("L") && name.endsWith(";"))
+            name = name.substring(1, name.length() - 1);
+        if (classes.contains(name))
+            mark(name, live, queue);
+
+        // Every object type in a descriptor or signature, such as `(Lfoo/Bar;)Ljava/util/List<Lfoo/Baz;>;`
+        for (int start = constant.indexOf('L'); start >= 0; start = constant.indexOf('L', start + 1)) {
+            int end = start + 1;
+            while (end < constant.length() && ";<.".indexOf(constant.charAt(end)) < 0)
+                end++;
+
+            var type = constant.substring(start + 1, end);
+            if (classes.contains(type))
+                mark(type, live, queue);
+        }
+    }
+
+    private static void addParents(String name, Set<String> parents) {
+        for (int i = name.lastIndexOf('/', name.length() - 2); i > 0; i = name.lastIndexOf('/', i - 1)) {
+            if (!parents.add(name.substring(0, i + 1)))
+                break;
+        }
+    }
+
+    private static boolean matches(List<Pattern> rules, String name) {
+        if (rules.isEmpty())
+            return false;
+
+        var binary = name.replace('/', '.');
+        for (var rule : rules) {
+            if (rule.matcher(binary).matches())
+                return true;
+        }
+        return false;
+    }
+
+    private static Pattern compile(String rule) {
+        if (rule.isBlank())
+            throw new InvalidUserDataException("Layer pruning keep rules must not be blank.");
+
+        var regex = new StringBuilder();
+        for (int i = 0; i < rule.length(); i++) {
+            var c = rule.charAt(i);
+            if (c == '*' && i + 1 < rule.length() && rule.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '*') {
+                regex.append("[^.]*");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static List<String> providers(byte[] data) {
+        var ret = new ArrayList<String>();
+        for (var line : new String(data, StandardCharsets.UTF_8).split("\n")) {
+            var comment = line.indexOf('#');
+            var provider = (comment >= 0 ? line.substring(0, comment) : line).strip();
+            if (!provider.isEmpty())
+                ret.add(provider);
+        }
+        return ret;
+    }
+
+    /// Reads the UTF-8 constants of a class file, which hold every class name, descriptor, signature and string it
+    /// uses.
+    private static List<String> utf8Constants(byte[] data) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != 0xCAFEBABE)
+            return List.of();
+
+        in.skipBytes(4); // minor and major version
+        int count = in.readUnsignedShort();
+        var ret = new ArrayList<String>(count / 2);
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> ret.add(in.readUTF());               // Utf8
+                case 7, 8, 16, 19, 20 -> in.skipBytes(2);      // Class, String, MethodType, Module, Package
+                case 15 -> in.skipBytes(3);                    // MethodHandle
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipBytes(4);
+                case 5, 6 -> {                                 // Long and Double take two slots
+                    in.skipBytes(8);
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        return ret;
+    }
+}
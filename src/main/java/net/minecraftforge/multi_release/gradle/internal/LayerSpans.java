@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Supplier;
+
+/// Records the [layer phase][MultiReleaseEvents.LayerPhase] events of entries that pass one phase in order.
+///
+/// The entries of a layer mostly follow each other, so every run of entries of the same layer gets one span. The spans
+/// follow each other without gaps: each starts where the previous one ended, so that the time before the first entry of
+/// a layer, such as Gradle walking and filtering its inputs, is counted towards that layer. If no recording has the
+/// events enabled, nothing is measured.
+final class LayerSpans<E extends MultiReleaseEvents.LayerPhase> {
+    private final Supplier<E> factory;
+    private final boolean enabled;
+    private @Nullable E current;
+    private E next;
+    private long finished;
+
+    LayerSpans(Supplier<E> factory) {
+        this.factory = factory;
+        this.next = factory.get();
+        this.enabled = this.next.isEnabled();
+        if (this.enabled) {
+            this.next.begin();
+            this.finished = System.nanoTime();
+        }
+    }
+
+    /// Starts an entry of the given layer, ending the span of the previous layer if it is a different one.
+    ///
+    /// @param version The layer version of the entry
+    /// @return The time since the previous entry was finished, in nanoseconds
+    long start(int version) {
+        if (!this.enabled) return 0;
+
+        var now = System.nanoTime();
+        if (this.current == null || this.current.version != version) {
+            if (this.current != null)
+                this.current.commit();
+
+            this.current = this.next;
+            this.current.version = version;
+            this.next = this.factory.get();
+        }
+        return now - this.finished;
+    }
+
+    /// Gets the span of the entry that was last started.
+    ///
+    /// @return The span, or `null` if no recording has the events enabled
+    @Nullable E current() {
+        return this.current;
+    }
+
+    /// Finishes the entry that was last started.
+    ///
+    /// @param bytes The size of the entry
+    void finish(long bytes) {
+        if (!this.enabled || this.current == null) return;
+
+        this.current.entries++;
+        this.current.bytes += bytes;
+        this.current.end();
+
+        // The next span starts here, in case the next entry is of another layer
+        this.next.begin();
+        this.finished = System.nanoTime();
+    }
+
+    /// Commits the span of the last layer.
+    void commit() {
+        if (this.current != null)
+            this.current.commit();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ModuleVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/// Rewrites the `module-info.class` entries of a multi-release JAR with the `ModulePackages` and `ModuleMainClass`
+/// attributes, in the same way the JDK `jar` tool does.
+///
+/// With `ModulePackages` present, the module system does not need to scan the JAR for its packages when the module is
+/// resolved at startup. Each module descriptor is given the packages that are visible to the runtime it applies to:
+/// the base descriptor gets the base packages, and a descriptor in `META-INF/versions/N/` also gets the packages of
+/// every layer up to and including `N`.
+final class ModuleAttributes {
+    private static final String MODULE_INFO = "module-info.class";
+
+    private ModuleAttributes() { }
+
+    static List<ArchiveEntry> apply(List<ArchiveEntry> entries) throws IOException {
+        var mainClass = findMainClass(entries);
+
+        var ret = new ArrayList<ArchiveEntry>(entries.size());
+        for (var entry : entries) {
+            if (entry.isDirectory() || !entry.path().equals(MODULE_INFO)) {
+                ret.add(entry);
+                continue;
+            }
+
+            var packages = packages(entries, entry.version());
+            var main = mainClass != null && packages.contains(packageOf(mainClass)) ? mainClass : null;
+            ret.add(entry.withData(rewrite(entry.data(), packages, main)));
+        }
+
+        return ret;
+    }
+
+    private static @Nullable String findMainClass(List<ArchiveEntry> entries) throws IOException {
+        for (var entry : entries) {
+            if (!entry.name.equals("META-INF/MANIFEST.MF"))
+                continue;
+
+            var mainClass = new Manifest(new ByteArrayInputStream(entry.data())).getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+            return mainClass != null ? mainClass.strip().replace('.', '/') : null;
+        }
+
+        return null;
+    }
+
+    private static Set<String> packages(List<ArchiveEntry> entries, int version) {
+        var ret = new TreeSet<String>();
+        for (var entry : entries) {
+            if (entry.isDirectory() || entry.version() > version)
+                continue;
+
+            var path = entry.path();
+            if (path.startsWith("META-INF/"))
+                continue;
+
+            var pkg = packageOf(path);
+            if (!pkg.isEmpty() && isPackageName(pkg))
+                ret.add(pkg);
+        }
+        return ret;
+    }
+
+    static String packageOf(String path) {
+        var end = path.lastIndexOf('/');
+        return end < 0 ? "" : path.substring(0, end);
+    }
+
+    static boolean isPackageName(String pkg) {
+        for (var part : pkg.split("/")) {
+            if (part.isEmpty() || !Character.isJavaIdentifierStart(part.codePointAt(0)))
+                return false;
+
+            for (int i = Character.charCount(part.codePointAt(0)); i < part.length(); i += Character.charCount(part.codePointAt(i))) {
+                if (!Character.isJavaIdentifierPart(part.codePointAt(i)))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] rewrite(byte[] moduleInfo, Set<String> packages, @Nullable String mainClass) {
+        var reader = new ClassReader(moduleInfo);
+        var writer = new ClassWriter(0);
+        reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            @Override
+            public ModuleVisitor visitModule(String name, int access, String version) {
+                return new ModuleVisitor(Opcodes.ASM9, super.visitModule(name, access, version)) {
+                    private boolean hasMainClass;
+
+                    @Override
+                    public void visitMainClass(String mainClass) {
+                        this.hasMainClass = true;
+                        super.visitMainClass(mainClass);
+                    }
+
+                    @Override
+                    public void visitPackage(String packaze) {
+                        // Replaced by the packages computed from the archive
+                    }
+
+                    @Override
+                    public void visitEnd() {
+                        if (!this.hasMainClass && mainClass != null)
+                            super.visitMainClass(mainClass);
+
+                        for (var pkg : packages)
+                            super.visitPackage(pkg);
+
+                        super.visitEnd();
+                    }
+                };
+            }
+        }, 0);
+        return writer.toByteArray();
+    }
+}
@@ -9,51 +9,92 @@ import org.codehaus.groovy.runtime.StringGroovyMethods;
 import org.gradle.api.Action;
 import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConsumableConfiguration;
 import org.gradle.api.artifacts.Dependency;
-import org.gradle.api.artifacts.dsl.DependencyFactory;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
 import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.Bundling;
+import org.gradle.api.attributes.Category;
+import org.gradle.api.attributes.LibraryElements;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.attributes.java.TargetJvmVersion;
 import org.gradle.api.component.AdhocComponentWithVariants;
 import org.gradle.api.component.SoftwareComponentFactory;
 import org.gradle.api.file.ArchiveOperations;
+import org.gradle.api.file.CopySpec;
 import org.gradle.api.file.DuplicatesStrategy;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.java.archives.Manifest;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.plugins.JvmTestSuitePlugin;
+import org.gradle.api.plugins.jvm.JvmTestSuite;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.api.tasks.testing.Test;
 import org.gradle.jvm.toolchain.JavaLanguageVersion;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.jvm.toolchain.JavaToolchainService;
 import org.gradle.language.base.plugins.LifecycleBasePlugin;
+import org.gradle.testing.base.TestingExtension;
+import org.jetbrains.annotations.Nullable;
 
 import javax.inject.Inject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 abstract class MultiReleaseContainerImpl implements MultiReleaseContainerInternal {
     protected abstract @Inject Project getProject();
 
     protected abstract @Inject ObjectFactory getObjects();
 
+    protected abstract @Inject ProjectLayout getProjectLayout();
+
     protected abstract @Inject ProviderFactory getProviders();
 
     protected abstract @Inject ArchiveOperations getArchiveOperations();
 
     protected abstract @Inject SoftwareComponentFactory getSoftwareComponentFactory();
 
-    protected abstract @Inject DependencyFactory getDependencyFactory();
+    protected abstract @Inject JavaToolchainService getJavaToolchains();
 
     private final MultiReleaseProblems problems = getObjects().newInstance(MultiReleaseProblems.class);
 
     private final SourceSet sourceSet;
     private final TaskProvider<? extends Jar> jar;
-    private final TaskProvider<Jar> multiReleaseJar;
+    private final TaskProvider<MultiReleaseJar> multiReleaseJar;
 
     private final Attribute<Boolean> attribute;
     private final NamedDomainObjectProvider<ConsumableConfiguration> apiElements;
     private final NamedDomainObjectProvider<ConsumableConfiguration> runtimeElements;
+    private final NamedDomainObjectProvider<ConsumableConfiguration> abiElements;
     private final AdhocComponentWithVariants softwareComponent;
 
+    private final CopySpec layers = getProject().copySpec();
+    private final Set<JavaLanguageVersion> versions = new TreeSet<>();
+    private boolean singleArtifact;
+    private boolean classDataArchives;
+    private boolean runtimeTests;
+    private @Nullable JavaLanguageVersion toolchainVersion;
+    private @Nullable NamedDomainObjectProvider<ConsumableConfiguration> classDataElements;
+
     @Inject
     public MultiReleaseContainerImpl(SourceSet sourceSet, TaskProvider<? extends Jar> jar) {
         this.sourceSet = sourceSet;
@@ -64,23 +105,41 @@ abstract class MultiReleaseContainerImpl implements MultiReleaseContainerInterna
         this.apiElements = createConfiguration(getProject().getConfigurations().named(sourceSet.getApiElementsConfigurationName()));
         this.runtimeElements = createConfiguration(getProject().getConfigurations().named(sourceSet.getRuntimeElementsConfigurationName()));
         this.softwareComponent = createSoftwareComponent();
+        this.abiElements = createAbiElements();
     }
 
     /* SETUP */
 
-    private TaskProvider<Jar> createJar() {
-        var ret = getProject().getTasks().register("multiRelease" + StringGroovyMethods.capitalize(jar.getName()), Jar.class, task -> {
+    private TaskProvider<MultiReleaseJar> createJar() {
+        var ret = getProject().getTasks().register("multiRelease" + StringGroovyMethods.capitalize(jar.getName()), MultiReleaseJar.class, task -> {
             task.setGroup(LifecycleBasePlugin.BUILD_GROUP);
             task.dependsOn(jar);
 
             task.with(jar.get());
+            if (!this.singleArtifact)
+                task.with(layers);
             task.setManifest(jar.get().getManifest());
             task.manifest(Closures.<Manifest>consumer(manifest -> manifest.getAttributes().put("Multi-Release", "true")));
 
             task.getArchiveClassifier().convention("mr");
+            task.getModuleAttributes().set(this.getModuleAttributes());
+            task.getBaseline().set(this.getMinimumRuntime().map(JavaLanguageVersion::asInt));
+            task.getPruneLayers().set(this.getPruneLayers());
+            task.getPruneKeepRules().set(this.getPruneKeepRules());
+            task.getLayerIndex().set(this.getLayerIndex());
+            task.getClassLoadOrder().set(this.getClassLoadOrder());
+            task.getParallelCompression().set(this.getParallelCompression());
+            task.getPatchInPlace().set(this.getPatchInPlace());
+            task.getChecksums().set(this.getChecksums());
+
+            var baseArchive = jar.flatMap(Jar::getArchiveFile);
+            task.getBaseArchive().set(this.getReuseBaseArchive().filter(Boolean::booleanValue).flatMap(reuse -> baseArchive));
         });
 
-        getProject().getTasks().named(LifecycleBasePlugin.ASSEMBLE_TASK_NAME).configure(task -> task.dependsOn(ret));
+        // In single-artifact mode, the base jar is the multi-release JAR and this task is never needed
+        getProject().getTasks().named(LifecycleBasePlugin.ASSEMBLE_TASK_NAME).configure(task -> task.dependsOn(
+            getProviders().provider(() -> this.singleArtifact ? List.of() : List.of(ret))
+        ));
 
         return ret;
     }
@@ -104,22 +163,48 @@ abstract class MultiReleaseContainerImpl implements MultiReleaseContainerInterna
         });
     }
 
+    private NamedDomainObjectProvider<ConsumableConfiguration> createAbiElements() {
+        var task = getProject().getTasks().register(multiReleaseJar.getName() + "Abi", AbiJar.class, t -> {
+            t.setGroup(LifecycleBasePlugin.BUILD_GROUP);
+            t.setDescription("Creates a JAR with the ABI of the " + sourceSet.getName() + " classes, for layers to compile against.");
+
+            t.getClasses().from(sourceSet.getOutput().getClassesDirs());
+            t.getArchiveFile().set(getProjectLayout().getBuildDirectory().file("multiRelease/" + t.getName() + ".jar"));
+        });
+
+        var baseConfiguration = getProject().getConfigurations().named(sourceSet.getApiElementsConfigurationName());
+        return getProject().getConfigurations().consumable(multiReleaseJar.getName() + "AbiElements", configuration -> {
+            configuration.setDescription("ABI of the " + sourceSet.getName() + " classes, for layers to compile against.");
+            configuration.attributes(attributes -> attributes.addAllLater(baseConfiguration.map(Configuration::getAttributes).get()));
+
+            // The ABI is only selected by layers that ask for it, so it does not replace the regular API elements
+            configuration.outgoing(outgoing -> {
+                outgoing.capability("%s:%s-abi:%s".formatted(abiGroup(), getProject().getName(), getProject().getVersion()));
+                outgoing.artifact(task.flatMap(AbiJar::getArchiveFile));
+            });
+
+            // Extending the API elements would also inherit the full JAR, so only the dependencies are inherited
+            var configurations = getProject().getConfigurations();
+            configuration.extendsFrom(configurations.getByName(sourceSet.getImplementationConfigurationName()));
+            if (configurations.getNames().contains(sourceSet.getCompileOnlyApiConfigurationName()))
+                configuration.extendsFrom(configurations.getByName(sourceSet.getCompileOnlyApiConfigurationName()));
+        });
+    }
+
+    private String abiGroup() {
+        // Capabilities need a group, which projects without one do not have
+        var group = getProject().getGroup().toString();
+        return group.isEmpty() ? getProject().getName() : group;
+    }
+
     private AdhocComponentWithVariants createSoftwareComponent() {
         var softwareComponent = getSoftwareComponentFactory().adhoc("multiRelease" + (SourceSet.isMain(sourceSet) ? "" : StringGroovyMethods.capitalize(sourceSet.getName())) + "Java");
         softwareComponent.addVariantsFromConfiguration(apiElements.get(), variant -> variant.mapToMavenScope("compile"));
         softwareComponent.addVariantsFromConfiguration(runtimeElements.get(), variant -> variant.mapToMavenScope("runtime"));
-        Util.ensureAfterEvaluate(getProject(), project -> {
-            var sourcesElements = project.getConfigurations().findByName(sourceSet.getSourcesElementsConfigurationName());
-            if (sourcesElements != null) {
-                softwareComponent.addVariantsFromConfiguration(sourcesElements, variant -> {
-                    variant.mapToMavenScope("runtime");
-                    variant.mapToOptional();
-                });
-            }
-
-            var javadocElements = project.getConfigurations().findByName(sourceSet.getJavadocElementsConfigurationName());
-            if (javadocElements != null) {
-                softwareComponent.addVariantsFromConfiguration(javadocElements, variant -> {
+        getProject().getConfigurations().configureEach(configuration -> {
+            var name = configuration.getName();
+            if (name.equals(sourceSet.getSourcesElementsConfigurationName()) || name.equals(sourceSet.getJavadocElementsConfigurationName())) {
+                softwareComponent.addVariantsFromConfiguration(configuration, variant -> {
                     variant.mapToMavenScope("runtime");
                     variant.mapToOptional();
                 });
@@ -129,11 +214,84 @@ abstract class MultiReleaseContainerImpl implements MultiReleaseContainerInterna
         return softwareComponent;
     }
 
+    private TaskProvider<ClassDataArchive> createClassDataArchive(String suffix, Provider<JavaLauncher> launcher, String classifier) {
+        var name = multiReleaseJar.getName() + "Cds" + suffix;
+        if (getProject().getTasks().getNames().contains(name))
+            return getProject().getTasks().named(name, ClassDataArchive.class);
+
+        var ret = getProject().getTasks().register(name, ClassDataArchive.class, task -> {
+            this.checkToolchainVersion();
+            task.setGroup(LifecycleBasePlugin.BUILD_GROUP);
+            task.setDescription("Creates a class data sharing archive of the multi-release JAR.");
+
+            task.getLauncher().set(launcher);
+            task.getClasspath().from(this.getJar().flatMap(Jar::getArchiveFile));
+            task.getClasspath().from(getProject().getConfigurations().named(sourceSet.getRuntimeClasspathConfigurationName()));
+            task.getMainClass().set(this.getTrainingMainClass());
+            task.getArgs().set(this.getTrainingArgs());
+            task.getJvmArgs().set(this.getTrainingJvmArgs());
+            task.getArchiveFile().set(getProjectLayout().getBuildDirectory().file("multiRelease/" + name + ".jsa"));
+        });
+
+        getClassDataElements().configure(configuration -> configuration.outgoing(outgoing ->
+            outgoing.artifact(ret.flatMap(ClassDataArchive::getArchiveFile), artifact -> {
+                artifact.setClassifier(classifier);
+                artifact.setExtension("jsa");
+                artifact.setType("jsa");
+            })
+        ));
+
+        return ret;
+    }
+
+    private NamedDomainObjectProvider<ConsumableConfiguration> getClassDataElements() {
+        if (this.classDataElements != null)
+            return this.classDataElements;
+
+        this.classDataElements = getProject().getConfigurations().consumable(multiReleaseJar.getName() + "ClassDataElements", configuration -> {
+            configuration.setDescription("Class data sharing archives of the multi-release JAR.");
+            configuration.attributes(attributes -> {
+                attributes.attribute(attribute, true);
+                attributes.attribute(Usage.USAGE_ATTRIBUTE, getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
+                attributes.attribute(Category.CATEGORY_ATTRIBUTE, getObjects().named(Category.class, "class-data-sharing"));
+            });
+        });
+
+        softwareComponent.addVariantsFromConfiguration(this.classDataElements.get(), variant -> {
+            variant.mapToMavenScope("runtime");
+            variant.mapToOptional();
+        });
+
+        return this.classDataElements;
+    }
+
+    private TaskProvider<Test> createRuntimeTest(String suffix, Provider<JavaLauncher> launcher) {
+        var name = multiReleaseJar.getName() + "Test" + suffix;
+        var suite = getProject().getExtensions().getByType(TestingExtension.class).getSuites()
+            .withType(JvmTestSuite.class).getByName(JvmTestSuitePlugin.DEFAULT_TEST_SUITE_NAME);
+        if (suite.getTargets().getNames().contains(name))
+            return suite.getTargets().getByName(name).getTestTask();
+
+        // A target of the default test suite shares its compiled test classes and test framework
+        var ret = suite.getTargets().register(name).get().getTestTask();
+        ret.configure(task -> {
+            this.checkToolchainVersion();
+            task.setDescription("Runs the test suite against the multi-release JAR.");
+            task.getJavaLauncher().set(launcher);
+            task.setClasspath(getProjectLayout().files(this.getJar().flatMap(Jar::getArchiveFile)).plus(task.getClasspath().minus(sourceSet.getOutput())));
+        });
+
+        getProject().getTasks().named(LifecycleBasePlugin.CHECK_TASK_NAME).configure(task -> task.dependsOn(ret));
+
+        return ret;
+    }
+
     /* EXPOSED API */
 
     @Override
+    @SuppressWarnings("unchecked")
     public TaskProvider<Jar> getJar() {
-        return this.multiReleaseJar;
+        return (TaskProvider<Jar>) (this.singleArtifact ? this.jar : this.multiReleaseJar);
     }
 
     @Override
@@ -146,16 +304,126 @@ abstract class MultiReleaseContainerImpl implements MultiReleaseContainerInterna
         return this.runtimeElements;
     }
 
+    @Override
+    public NamedDomainObjectProvider<ConsumableConfiguration> getAbiElements() {
+        return this.abiElements;
+    }
+
     @Override
     public AdhocComponentWithVariants getComponent() {
         return this.softwareComponent;
     }
 
+    /* OUTPUT LAYOUT */
+
+    @Override
+    public void singleArtifact() {
+        if (this.singleArtifact) return;
+        this.singleArtifact = true;
+
+        jar.configure(task -> {
+            task.with(layers);
+            task.manifest(Closures.<Manifest>consumer(manifest -> manifest.getAttributes().put("Multi-Release", "true")));
+        });
+
+        // The multi-release variants stay available for consumers that request them, but now share the base jar
+        for (var elements : List.of(apiElements, runtimeElements)) {
+            elements.configure(configuration -> {
+                configuration.getOutgoing().getArtifacts().clear();
+                configuration.getOutgoing().artifact(jar);
+            });
+        }
+    }
+
+    /* CLASS DATA SHARING */
+
+    @Override
+    public TaskProvider<? extends Task> classDataArchive() {
+        var toolchain = getProject().getExtensions().getByType(JavaPluginExtension.class).getToolchain();
+        return this.createClassDataArchive("", getJavaToolchains().launcherFor(toolchain), "cds");
+    }
+
+    @Override
+    public TaskProvider<? extends Task> classDataArchive(JavaLanguageVersion version) {
+        if (version.compareTo(JavaLanguageVersion.of(10)) < 0)
+            throw problems.classDataVersionTooLow(version);
+
+        return this.createClassDataArchive(
+            String.valueOf(version.asInt()),
+            getJavaToolchains().launcherFor(spec -> spec.getLanguageVersion().set(version)),
+            "cds-jdk" + version.asInt()
+        );
+    }
+
+    @Override
+    public void classDataArchives() {
+        this.classDataArchives = true;
+        this.classDataArchive();
+        for (var version : this.versions) {
+            if (this.needsClassDataArchive(version))
+                this.classDataArchive(version);
+        }
+    }
+
+    // Layers below Java 10 cannot have archives, and the toolchain's own version already has one
+    private boolean needsClassDataArchive(JavaLanguageVersion version) {
+        return version.compareTo(JavaLanguageVersion.of(10)) >= 0 && !version.equals(this.getToolchainVersion());
+    }
+
+    // The version is read once, since the tasks skipped for it cannot be registered again if it changes later
+    private JavaLanguageVersion getToolchainVersion() {
+        if (this.toolchainVersion == null)
+            this.toolchainVersion = this.readToolchainVersion();
+
+        return this.toolchainVersion;
+    }
+
+    private JavaLanguageVersion readToolchainVersion() {
+        var toolchain = getProject().getExtensions().getByType(JavaPluginExtension.class).getToolchain();
+        return toolchain.getLanguageVersion().getOrElse(JavaLanguageVersion.current());
+    }
+
+    private void checkToolchainVersion() {
+        if (this.toolchainVersion == null)
+            return;
+
+        var current = this.readToolchainVersion();
+        if (!current.equals(this.toolchainVersion))
+            throw problems.toolchainVersionChanged(this.toolchainVersion, current);
+    }
+
+    /* RUNTIME TESTS */
+
+    @Override
+    public TaskProvider<? extends Task> runtimeTest() {
+        var toolchain = getProject().getExtensions().getByType(JavaPluginExtension.class).getToolchain();
+        return this.createRuntimeTest("", getJavaToolchains().launcherFor(toolchain));
+    }
+
+    @Override
+    public TaskProvider<? extends Task> runtimeTest(JavaLanguageVersion version) {
+        return this.createRuntimeTest(
+            String.valueOf(version.asInt()),
+            getJavaToolchains().launcherFor(spec -> spec.getLanguageVersion().set(version))
+        );
+    }
+
+    @Override
+    public void runtimeTests() {
+        this.runtimeTests = true;
+        this.runtimeTest();
+        for (var version : this.versions) {
+            if (!version.equals(this.getToolchainVersion()))
+                this.runtimeTest(version);
+        }
+    }
+
     /* ADDING DEPENDENCIES */
 
     @Override
     public void add(JavaLanguageVersion version, Project dependency, Action<? super Configuration> action) {
-        this.add(version, getDependencyFactory().create(dependency), action);
+        // Only the path is used, since isolated projects do not allow touching the state of another project
+        this.add(version, getProject().getDependencies().project(Map.of("path", dependency.getPath())), action);
     }
 
     @Override
@@ -169,27 +437,139 @@ abstract class MultiReleaseContainerImpl implements MultiReleaseContainerInterna
     }
 
     private void add(JavaLanguageVersion version, Configuration configuration, Action<? super Configuration> action) {
+        var event = new MultiReleaseEvents.AddLayer();
+        event.begin();
+        this.addLayer(version, configuration, action);
+        event.end();
+        if (event.shouldCommit()) {
+            event.version = version.asInt();
+            event.transitive = configuration.isTransitive();
+            event.commit();
+        }
+    }
+
+    private void addLayer(JavaLanguageVersion version, Configuration configuration, Action<? super Configuration> action) {
         if (version.compareTo(JavaLanguageVersion.of(8)) <= 0) {
             var dependency = configuration.getDependencies().iterator().next();
             throw problems.multiReleaseVersionTooLow(version, dependency);
         }
 
         configuration.setTransitive(false);
+        configuration.attributes(attributes -> {
+            attributes.attribute(Usage.USAGE_ATTRIBUTE, getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
+            attributes.attribute(Category.CATEGORY_ATTRIBUTE, getObjects().named(Category.class, Category.LIBRARY));
+            attributes.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, getObjects().named(LibraryElements.class, LibraryElements.JAR));
+            attributes.attribute(Bundling.BUNDLING_ATTRIBUTE, getObjects().named(Bundling.class, Bundling.EXTERNAL));
+            attributes.attribute(TargetJvmVersion.TARGET_JVM_VERSION_ATTRIBUTE, version.asInt());
+        });
         action.execute(configuration);
 
-        Util.ensureAfterEvaluate(getProject(), project ->
-            multiReleaseJar.get().configure(Closures.<Jar>consumer(multiReleaseJar -> {
-                multiReleaseJar.dependsOn(configuration.getBuildDependencies());
-                multiReleaseJar.into("META-INF/versions/" + version.asInt(), into -> {
-                    into.setDuplicatesStrategy(DuplicatesStrategy.WARN);
-                    for (var file : configuration.getFiles()) {
-                        into.from(getProviders().provider(() -> getArchiveOperations().zipTree(file)), from -> {
-                            from.setDuplicatesStrategy(DuplicatesStrategy.WARN);
-                            from.exclude("**/META-INF/**");
-                        });
-                    }
-                });
-            }))
-        );
+        if (this.versions.add(version)) {
+            if (this.classDataArchives && this.needsClassDataArchive(version))
+                this.classDataArchive(version);
+            if (this.runtimeTests && !version.equals(this.getToolchainVersion()))
+                this.runtimeTest(version);
+        }
+
+        // The resolved artifacts carry their build dependencies, so the layer is only resolved when the task needs it
+        var artifacts = this.resolveLayer(configuration);
+        if (configuration.isTransitive()) {
+            // Transitive dependencies that the base already ships, including this project itself, are left out
+            var shipped = getProject().getConfigurations().named(sourceSet.getRuntimeClasspathConfigurationName())
+                .flatMap(base -> base.getIncoming().getResolutionResult().getRootComponent())
+                .map(MultiReleaseContainerImpl::components);
+            var direct = configuration.getIncoming().getResolutionResult().getRootComponent()
+                .map(MultiReleaseContainerImpl::directComponents);
+            artifacts = artifacts.zip(shipped.zip(direct, (components, declared) -> {
+                var excluded = new HashSet<>(components);
+                excluded.removeAll(declared);
+                return excluded;
+            }), (all, excluded) -> {
+                var ret = new LinkedHashSet<ResolvedArtifactResult>(all.size());
+                for (var artifact : all) {
+                    if (!excluded.contains(artifact.getId().getComponentIdentifier()))
+                        ret.add(artifact);
+                }
+                return ret;
+            });
+        }
+
+        // Inputs that are multi-release JARs themselves have their nested layers flattened into this one
+        // The transformer is stored in the configuration cache, so it only captures the services it needs
+        var archiveOperations = getArchiveOperations();
+        var objects = getObjects();
+        var layer = artifacts.map(resolved -> {
+            var event = new MultiReleaseEvents.OpenLayer();
+            event.begin();
+            var trees = new ArrayList<FileTree>(resolved.size());
+            for (var artifact : resolved)
+                trees.add(NestedLayers.of(archiveOperations, objects, artifact.getFile(), version.asInt()));
+            event.end();
+            if (event.shouldCommit()) {
+                event.version = version.asInt();
+                event.artifacts = resolved.size();
+                event.commit();
+            }
+            return trees;
+        });
+
+        layers.into("META-INF/versions/" + version.asInt(), into -> {
+            into.setDuplicatesStrategy(DuplicatesStrategy.WARN);
+            into.from(layer, from -> {
+                from.setDuplicatesStrategy(DuplicatesStrategy.WARN);
+                from.setIncludeEmptyDirs(false);
+                from.eachFile(details -> NestedLayers.remap(details, version.asInt()));
+            });
+        });
+    }
+
+    private Provider<Set<ResolvedArtifactResult>> resolveLayer(Configuration configuration) {
+        var jars = configuration.getIncoming().getArtifacts().getResolvedArtifacts();
+
+        // Project layers are read from their class and resource directories, so that their jars are not built
+        // External modules have no such variants and still resolve to their jars, which are compatible with classes
+        var classes = this.resolveView(configuration, LibraryElements.CLASSES, id -> true);
+        var resources = this.resolveView(configuration, LibraryElements.RESOURCES, id -> id instanceof ProjectComponentIdentifier);
+        var directories = classes.zip(resources, (classDirs, resourceDirs) -> {
+            Set<ResolvedArtifactResult> ret = new LinkedHashSet<>(classDirs);
+            ret.addAll(resourceDirs);
+            return ret;
+        });
+
+        return this.getLayerClasses().orElse(true).flatMap(useClasses -> useClasses ? directories : jars);
+    }
+
+    private Provider<Set<ResolvedArtifactResult>> resolveView(Configuration configuration, String libraryElements, Spec<ComponentIdentifier> filter) {
+        return configuration.getIncoming().artifactView(view -> {
+            view.componentFilter(filter);
+            view.attributes(attributes -> attributes.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, getObjects().named(LibraryElements.class, libraryElements)));
+        }).getArtifacts().getResolvedArtifacts();
+    }
+
+    /// Gets every component in the dependency graph of the given root, including the root itself.
+    private static Set<ComponentIdentifier> components(ResolvedComponentResult root) {
+        var ret = new HashSet<ComponentIdentifier>();
+        var queue = new ArrayDeque<ResolvedComponentResult>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            var component = queue.remove();
+            if (!ret.add(component.getId())) continue;
+
+            for (var dependency : component.getDependencies()) {
+                if (dependency instanceof ResolvedDependencyResult resolved)
+                    queue.add(resolved.getSelected());
+            }
+        }
+        return ret;
+    }
+
+    /// Gets the components that the given root depends on directly.
+    private static Set<ComponentIdentifier> directComponents(ResolvedComponentResult root) {
+        var ret = new HashSet<ComponentIdentifier>();
+        for (var dependency : root.getDependencies()) {
+            if (dependency instanceof ResolvedDependencyResult resolved)
+                ret.add(resolved.getSelected().getId());
+        }
+        return ret;
     }
 }
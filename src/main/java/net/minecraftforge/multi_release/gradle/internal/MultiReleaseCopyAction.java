@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.WorkResults;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/// The copy action used by [MultiReleaseJar] when any of its layout options are in use.
+///
+/// If any option rearranges, rewrites or compares the entries, they are all collected before the first one is written.
+/// Otherwise they are written as they are read, like the standard ZIP copy action does. If a base archive is given, the
+/// entries it already holds are taken from it in their compressed form. If patching in place is enabled, the previous
+/// archive is only patched with the entries that changed, as long as it is not too fragmented.
+final class MultiReleaseCopyAction implements CopyAction {
+    /// The timestamp used for entries when file timestamps are not preserved, matching the standard ZIP copy action.
+    static final long CONSTANT_TIME_FOR_ZIP_ENTRIES = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+
+    private final File archive;
+    private final Charset charset;
+    private final boolean compress;
+    private final boolean zip64;
+    private final boolean preserveFileTimestamps;
+    private final boolean moduleAttributes;
+    private final @Nullable Integer baseline;
+    private final boolean pruneLayers;
+    private final List<String> pruneKeepRules;
+    private final boolean layerIndex;
+    private final @Nullable File classLoadOrder;
+    private final int compressionThreads;
+    private final @Nullable File baseArchive;
+    private final boolean patchInPlace;
+    private final List<String> checksums;
+
+    MultiReleaseCopyAction(MultiReleaseJar task) {
+        this.archive = task.getArchiveFile().get().getAsFile();
+        this.charset = task.getMetadataCharset() != null ? Charset.forName(task.getMetadataCharset()) : StandardCharsets.UTF_8;
+        this.compress = task.getEntryCompression() == ZipEntryCompression.DEFLATED;
+        this.zip64 = task.isZip64();
+        this.preserveFileTimestamps = task.isPreserveFileTimestamps();
+        this.moduleAttributes = task.getModuleAttributes().getOrElse(false);
+        this.baseline = task.getBaseline().getOrNull();
+        this.pruneLayers = task.getPruneLayers().getOrElse(false);
+        this.pruneKeepRules = task.getPruneKeepRules().getOrElse(List.of());
+        this.layerIndex = task.getLayerIndex().getOrElse(false);
+        this.classLoadOrder = task.getClassLoadOrder().getAsFile().getOrNull();
+        this.compressionThreads = task.getParallelCompression().getOrElse(false) ? Runtime.getRuntime().availableProcessors() : 1;
+        this.baseArchive = task.getBaseArchive().getAsFile().getOrNull();
+        this.patchInPlace = task.getPatchInPlace().getOrElse(false);
+        this.checksums = task.getChecksums().getOrElse(List.of());
+    }
+
+    @Override
+    public WorkResult execute(CopyActionProcessingStream stream) {
+        try {
+            if (!this.needsAllEntries()) {
+                try (var base = this.baseArchive != null ? new ZipReader(this.baseArchive, this.charset) : null) {
+                    return this.stream(stream, base);
+                }
+            }
+
+            var event = new MultiReleaseEvents.ReadEntries();
+            event.begin();
+
+            List<ArchiveEntry> entries = new ArrayList<>();
+            var reads = new LayerSpans<>(MultiReleaseEvents.ReadLayer::new);
+            try (var base = this.baseArchive != null ? new ZipReader(this.baseArchive, this.charset) : null) {
+                stream.process(details -> {
+                    var filtering = reads.start(ArchiveEntry.version(details.getRelativePath().getPathString()));
+                    var entry = this.read(details, base);
+                    entries.add(entry);
+
+                    var span = reads.current();
+                    if (span != null) span.filtering += filtering;
+                    reads.finish(size(entry));
+                });
+            }
+            reads.commit();
+
+            event.end();
+            if (event.shouldCommit()) {
+                var names = new HashSet<String>();
+                event.entries = entries.size();
+                for (var entry : entries) {
+                    if (!names.add(entry.name)) event.duplicates++;
+                    if (entry.stored() != null) event.reused++;
+                }
+                event.commit();
+            }
+
+            return this.write(entries);
+        } catch (IOException e) {
+            throw new GradleException("Could not create ZIP '%s'.".formatted(this.archive), e);
+        }
+    }
+
+    /// Checks if any step needs every entry before the first one can be written.
+    private boolean needsAllEntries() {
+        return this.pruneLayers
+            || this.baseline != null
+            || this.moduleAttributes
+            || this.layerIndex
+            || this.classLoadOrder != null
+            || this.patchInPlace;
+    }
+
+    private ArchiveEntry read(FileCopyDetailsInternal details, @Nullable ZipReader base) {
+        var time = this.preserveFileTimestamps ? details.getLastModified() : CONSTANT_TIME_FOR_ZIP_ENTRIES;
+        var entry = ArchiveEntry.of(details, time);
+        if (base == null || entry.isDirectory())
+            return entry;
+
+        // Content that the base archive already holds is transferred in its compressed form instead of being compressed
+        // again. The manifest is always taken from the copy spec, since it is the one with the multi-release attribute.
+        var stored = entry.name.equals("META-INF/MANIFEST.MF") ? null : base.get(entry.name);
+        if (stored == null || stored.size() != entry.data().length || stored.crc() != crc(entry.data()))
+            return entry;
+
+        try {
+            return entry.withStored(base.read(stored));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long crc(byte[] data) {
+        var crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private static long size(ArchiveEntry entry) {
+        var stored = entry.stored();
+        return stored != null ? stored.size() : entry.data().length;
+    }
+
+    private static List<ArchiveEntry> transform(String step, List<ArchiveEntry> entries, Step action) throws IOException {
+        var event = new MultiReleaseEvents.Transform();
+        event.begin();
+        var ret = action.apply(entries);
+        event.end();
+        if (event.shouldCommit()) {
+            event.step = step;
+            event.entriesBefore = entries.size();
+            event.entriesAfter = ret.size();
+            event.commit();
+        }
+        return ret;
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        List<ArchiveEntry> apply(List<ArchiveEntry> entries) throws IOException;
+    }
+
+    private WorkResult write(List<ArchiveEntry> entries) throws IOException {
+        // Pruning comes first, so that folded layers and generated metadata only see the classes that are kept
+        if (this.pruneLayers)
+            entries = transform("pruneLayers", entries, e -> LayerPruning.apply(e, this.pruneKeepRules));
+
+        if (this.baseline != null)
+            entries = transform("baseline", entries, e -> BaselineLayers.apply(e, this.baseline));
+
+        if (this.moduleAttributes)
+            entries = transform("moduleAttributes", entries, ModuleAttributes::apply);
+
+        if (this.layerIndex)
+            entries = transform("layerIndex", entries, e -> LayerIndex.apply(e));
+
+        if (this.classLoadOrder != null) {
+            var profile = ClassLoadOrder.read(this.classLoadOrder);
+            entries = transform("classLoadOrder", entries, e -> ClassLoadOrder.sort(e, profile));
+        }
+
+        var event = new MultiReleaseEvents.Write();
+        event.begin();
+
+        var checksums = new Checksums(this.checksums);
+        var patcher = this.patchInPlace ? ArchivePatcher.plan(this.archive, this.charset, this.compress, entries) : null;
+        var writes = new LayerSpans<>(MultiReleaseEvents.WriteLayer::new);
+        try (var compressor = new EntryCompressor(this.compress, this.compressionThreads);
+             var writer = patcher != null ? patcher.open(this.charset, this.zip64) : this.open(checksums)) {
+            // With parallel compression, the span of a layer also waits for entries of the layer before it
+            var sink = compressor.open(writer);
+            for (var entry : entries) {
+                writes.start(entry.version());
+                sink.write(entry);
+                writes.finish(size(entry));
+            }
+            sink.finish();
+        }
+        writes.commit();
+
+        // A patched archive was only partly written, so its checksums need the kept part as well
+        if (patcher != null && !this.checksums.isEmpty())
+            checksums.digest(this.archive);
+
+        return this.finish(event, checksums, entries.size(), patcher != null);
+    }
+
+    /// Writes the entries to the archive as they are read, without holding more than the compression window in memory.
+    private WorkResult stream(CopyActionProcessingStream stream, @Nullable ZipReader base) throws IOException {
+        var event = new MultiReleaseEvents.Write();
+        event.begin();
+
+        var checksums = new Checksums(this.checksums);
+        var reads = new LayerSpans<>(MultiReleaseEvents.ReadLayer::new);
+        var count = new int[1];
+        try (var compressor = new EntryCompressor(this.compress, this.compressionThreads);
+             var writer = this.open(checksums)) {
+            var sink = compressor.open(writer);
+            stream.process(details -> {
+                var filtering = reads.start(ArchiveEntry.version(details.getRelativePath().getPathString()));
+                var entry = this.read(details, base);
+                count[0]++;
+
+                var span = reads.current();
+                var start = span != null ? System.nanoTime() : 0;
+                try {
+                    sink.write(entry);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                if (span != null) {
+                    span.filtering += filtering;
+                    span.writing += System.nanoTime() - start;
+                }
+                reads.finish(size(entry));
+            });
+            sink.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        reads.commit();
+        return this.finish(event, checksums, count[0], false);
+    }
+
+    private ZipWriter open(Checksums checksums) throws IOException {
+        return new ZipWriter(new BufferedOutputStream(checksums.wrap(new FileOutputStream(this.archive))), this.charset, this.zip64);
+    }
+
+    private WorkResult finish(MultiReleaseEvents.Write event, Checksums checksums, int entries, boolean patched) throws IOException {
+        if (!this.checksums.isEmpty())
+            checksums.write(this.archive);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.archive = this.archive.getName();
+            event.entries = entries;
+            event.bytes = this.archive.length();
+            event.patched = patched;
+            event.threads = this.compressionThreads;
+            event.commit();
+        }
+
+        return WorkResults.didWork(true);
+    }
+}
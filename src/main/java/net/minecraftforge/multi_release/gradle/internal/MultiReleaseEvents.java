@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/// The Java Flight Recorder events emitted by the plugin, so that a recording of the Gradle daemon shows where the time
+/// of configuring containers and building multi-release JARs goes.
+///
+/// Events are only committed while a recording with them enabled is running. Their fields are only computed after
+/// [Event#shouldCommit()] was checked, so without a recording they cost little more than the allocation of the event.
+final class MultiReleaseEvents {
+    private static final String CATEGORY = "Multi-Release Gradle";
+
+    private MultiReleaseEvents() { }
+
+    @Name("net.minecraftforge.multi_release.Register")
+    @Label("Container Registration")
+    @Description("Registration of a multi-release container, including its tasks and configurations")
+    @Category({ "Gradle", CATEGORY })
+    @StackTrace(false)
+    static final class Register extends Event {
+        @Label("Source Set")
+        String sourceSet;
+
+        @Label("Jar Task")
+        String jar;
+    }
+
+    @Name("net.minecraftforge.multi_release.AddLayer")
+    @Label("Layer Added")
+    @Description("Validation and wiring of a dependency added to a layer")
+    @Category({ "Gradle", CATEGORY })
+    @StackTrace(false)
+    static final class AddLayer extends Event {
+        @Label("Version")
+        int version;
+
+        @Label("Transitive")
+        boolean transitive;
+    }
+
+    @Name("net.minecraftforge.multi_release.OpenLayer")
+    @Label("Layer Inputs")
+    @Description("Opening of the resolved artifacts of a layer as input trees, including reading the nested layers of multi-release JARs")
+    @Category({ "Gradle", CATEGORY })
+    @StackTrace(false)
+    static final class OpenLayer extends Event {
+        @Label("Version")
+        int version;
+
+        @Label("Artifacts")
+        int artifacts;
+    }
+
+    @Name("net.minecraftforge.multi_release.ReadEntries")
+    @Label("Read Entries")
+    @Description("Reading of the entries of a multi-release JAR from its copy spec")
+    @Category({ "Gradle", CATEGORY })
+    @StackTrace(false)
+    static final class ReadEntries extends Event {
+        @Label("Entries")
+        int entries;
+
+        @Label("Duplicates")
+        @Description("Entries whose name was already read, as allowed by the duplicates strategy")
+        int duplicates;
+
+        @Label("Reused Entries")
+        @Description("Entries taken from the base archive without reading their file")
+        int reused;
+    }
+
+    /// A span of time spent on the entries of one layer. See [LayerSpans] for how the spans are recorded.
+    abstract static class LayerPhase extends Event {
+        @Label("Version")
+        @Description("The layer version, or 0 for the base")
+        int version;
+
+        @Label("Entries")
+        int entries;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("net.minecraftforge.multi_release.ReadLayer")
+    @Label("Read Layer")
+    @Description("Reading of the entries of one layer of a multi-release JAR from its copy spec")
+    @Category({ "Gradle", CATEGORY })
+    @StackTrace(false)
+    static final class ReadLayer extends LayerPhase {
+        @Label("Filtering")
+        @Description("Time Gradle spent walking and filtering the inputs of the layer, including nested layers and duplicates")
+        @Timespan(Timespan.NANOSECONDS)
+        long filtering;
+
+        @Label("Writing")
+        @Description("Time spent writing the entries as they were read, if the archive is not collected first")
+        @Timespan(Timespan.NANOSECONDS)
+        long writing;
+    }
+
+    @Name("net.minecraftforge.multi_release.WriteLayer")
+    @Label("Write Layer")
+    @Description("Compression and writing of the collected entries of one layer of a multi-release JAR")
+    @Category({ "Gradle", CATEGORY })
+    @StackTrace(false)
+    static final class WriteLayer extends LayerPhase { }
+
+    @Name("net.minecraftforge.multi_release.Transform")
+    @Label("Transform Entries")
+    @Description("A step that rewrites, filters or reorders the entries of a multi-release JAR")
+    @Category({ "Gradle", CATEGORY })
+    @StackTrace(false)
+    static final class Transform extends Event {
+        @Label("Step")
+        String step;
+
+        @Label("Entries Before")
+        int entriesBefore;
+
+        @Label("Entries After")
+        int entriesAfter;
+    }
+
+    @Name("net.minecraftforge.multi_release.Write")
+    @Label("Write Archive")
+    @Description("Compression and writing of a multi-release JAR")
+    @Category({ "Gradle", CATEGORY })
+    @StackTrace(false)
+    static final class Write extends Event {
+        @Label("Archive")
+        String archive;
+
+        @Label("Entries")
+        int entries;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Patched")
+        @Description("Whether the previous archive was patched in place")
+        boolean patched;
+
+        @Label("Threads")
+        int threads;
+    }
+}
@@ -65,7 +65,16 @@ abstract class MultiReleaseExtensionImpl implements MultiReleaseExtensionInterna
 
     @Override
     public MultiReleaseContainer register(SourceSet sourceSet, TaskProvider<? extends Jar> jar) {
-        return this.container = getObjects().newInstance(MultiReleaseContainerImpl.class, sourceSet, jar);
+        var event = new MultiReleaseEvents.Register();
+        event.begin();
+        this.container = getObjects().newInstance(MultiReleaseContainerImpl.class, sourceSet, jar);
+        event.end();
+        if (event.shouldCommit()) {
+            event.sourceSet = sourceSet.getName();
+            event.jar = jar.getName();
+            event.commit();
+        }
+        return this.container;
     }
 
     @Override
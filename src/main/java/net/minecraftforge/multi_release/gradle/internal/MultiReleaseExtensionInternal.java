@@ -9,10 +9,14 @@ import org.gradle.api.Action;
 import org.gradle.api.Named;
 import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConsumableConfiguration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.component.AdhocComponentWithVariants;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.reflect.HasPublicType;
 import org.gradle.api.reflect.TypeOf;
@@ -46,11 +50,121 @@ interface MultiReleaseExtensionInternal extends MultiReleaseExtension, HasPublic
         return this.getContainer().getRuntimeElements();
     }
 
+    @Override
+    default NamedDomainObjectProvider<ConsumableConfiguration> getAbiElements() {
+        return this.getContainer().getAbiElements();
+    }
+
     @Override
     default AdhocComponentWithVariants getComponent() {
         return this.getContainer().getComponent();
     }
 
+    @Override
+    default void singleArtifact() {
+        this.getContainer().singleArtifact();
+    }
+
+    @Override
+    default Property<Boolean> getLayerClasses() {
+        return this.getContainer().getLayerClasses();
+    }
+
+    @Override
+    default Property<JavaLanguageVersion> getMinimumRuntime() {
+        return this.getContainer().getMinimumRuntime();
+    }
+
+    @Override
+    default Property<Boolean> getPruneLayers() {
+        return this.getContainer().getPruneLayers();
+    }
+
+    @Override
+    default ListProperty<String> getPruneKeepRules() {
+        return this.getContainer().getPruneKeepRules();
+    }
+
+    @Override
+    default Property<Boolean> getModuleAttributes() {
+        return this.getContainer().getModuleAttributes();
+    }
+
+    @Override
+    default Property<Boolean> getLayerIndex() {
+        return this.getContainer().getLayerIndex();
+    }
+
+    @Override
+    default RegularFileProperty getClassLoadOrder() {
+        return this.getContainer().getClassLoadOrder();
+    }
+
+    @Override
+    default Property<Boolean> getReuseBaseArchive() {
+        return this.getContainer().getReuseBaseArchive();
+    }
+
+    @Override
+    default Property<Boolean> getPatchInPlace() {
+        return this.getContainer().getPatchInPlace();
+    }
+
+    @Override
+    default ListProperty<String> getChecksums() {
+        return this.getContainer().getChecksums();
+    }
+
+    @Override
+    default Property<Boolean> getParallelCompression() {
+        return this.getContainer().getParallelCompression();
+    }
+
+    @Override
+    default Property<String> getTrainingMainClass() {
+        return this.getContainer().getTrainingMainClass();
+    }
+
+    @Override
+    default ListProperty<String> getTrainingArgs() {
+        return this.getContainer().getTrainingArgs();
+    }
+
+    @Override
+    default ListProperty<String> getTrainingJvmArgs() {
+        return this.getContainer().getTrainingJvmArgs();
+    }
+
+    @Override
+    default TaskProvider<? extends Task> classDataArchive() {
+        return this.getContainer().classDataArchive();
+    }
+
+    @Override
+    default TaskProvider<? extends Task> classDataArchive(JavaLanguageVersion version) {
+        return this.getContainer().classDataArchive(version);
+    }
+
+    @Override
+    default void classDataArchives() {
+        this.getContainer().classDataArchives();
+    }
+
+    @Override
+    default TaskProvider<? extends Task> runtimeTest() {
+        return this.getContainer().runtimeTest();
+    }
+
+    @Override
+    default TaskProvider<? extends Task> runtimeTest(JavaLanguageVersion version) {
+        return this.getContainer().runtimeTest(version);
+    }
+
+    @Override
+    default void runtimeTests() {
+        this.getContainer().runtimeTests();
+    }
+
     @Override
     default void add(JavaLanguageVersion version, Project dependency, Action<? super Configuration> action) {
         this.getContainer().add(version, dependency, action);
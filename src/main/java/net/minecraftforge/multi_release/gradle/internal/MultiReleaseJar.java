@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.work.DisableCachingByDefault;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/// The task type used for the output JAR of a [multi-release container][MultiReleaseContainerImpl].
+///
+/// It behaves exactly like a standard [Jar] task unless one of its layout options is used, in which case the archive is
+/// written by a [MultiReleaseCopyAction] instead. Either way, writing the archive emits [MultiReleaseEvents].
+@DisableCachingByDefault(because = "Not worth caching")
+abstract class MultiReleaseJar extends Jar {
+    protected abstract @Inject ProjectLayout getLayout();
+    protected abstract @Inject ObjectFactory getObjects();
+
+    @Inject
+    public MultiReleaseJar() { }
+
+    /// Whether the module descriptors of the archive are given the `ModulePackages` and `ModuleMainClass` attributes.
+    ///
+    /// @see ModuleAttributes
+    @Input
+    @Optional
+    public abstract Property<Boolean> getModuleAttributes();
+
+    /// The minimum runtime version of the archive, at or below which layers are folded into the base.
+    ///
+    /// @see BaselineLayers
+    @Input
+    @Optional
+    public abstract Property<Integer> getBaseline();
+
+    /// Whether the classes of the versioned layers that nothing reaches are removed.
+    ///
+    /// @see LayerPruning
+    @Input
+    @Optional
+    public abstract Property<Boolean> getPruneLayers();
+
+    /// The rules for the layer classes that are always kept when pruning layers.
+    @Input
+    @Optional
+    public abstract ListProperty<String> getPruneKeepRules();
+
+    /// Whether a per-version index of the classes, packages and service providers is added to the archive.
+    ///
+    /// @see LayerIndex
+    @Input
+    @Optional
+    public abstract Property<Boolean> getLayerIndex();
+
+    /// The class-load profile used to order the entries of the archive.
+    ///
+    /// @see ClassLoadOrder
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getClassLoadOrder();
+
+    /// The already-built base archive whose entries are transferred without being compressed again.
+    ///
+    /// An entry is only used in place of the file of the same path if their size and CRC-32 match.
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getBaseArchive();
+
+    /// Whether the previous archive is patched in place with only the entries that changed.
+    ///
+    /// @see ArchivePatcher
+    @Input
+    @Optional
+    public abstract Property<Boolean> getPatchInPlace();
+
+    /// The algorithms of the checksums that are computed while the archive is written.
+    ///
+    /// @see Checksums
+    @Input
+    @Optional
+    public abstract ListProperty<String> getChecksums();
+
+    /// The checksum files written next to the archive, one for each of the [checksums][#getChecksums()].
+    @OutputFiles
+    public FileCollection getChecksumFiles() {
+        return this.getLayout().files(this.getArchiveFile().zip(this.getChecksums().orElse(List.of()), (archive, algorithms) -> {
+            var ret = new ArrayList<File>(algorithms.size());
+            for (var algorithm : algorithms)
+                ret.add(Checksums.file(archive.getAsFile(), algorithm));
+            return ret;
+        }));
+    }
+
+    /// Whether entries are compressed in parallel.
+    ///
+    /// This only applies if another layout option is in use, since it does not replace the standard ZIP copy action by
+    /// itself. On its own, a warning is reported instead. It is not an input, because the archive is the same no matter
+    /// how many threads compress it.
+    @Internal
+    public abstract Property<Boolean> getParallelCompression();
+
+    @Override
+    protected CopyAction createCopyAction() {
+        if (this.isCustomLayout())
+            return new MultiReleaseCopyAction(this);
+
+        if (this.getParallelCompression().getOrElse(false))
+            this.getObjects().newInstance(MultiReleaseProblems.class).reportParallelCompressionWithoutEffect(this.getPath());
+
+        // The standard copy action is decorated, so that it emits the same events as the multi-release one
+        return new RecordedCopyAction(super.createCopyAction(), this.getArchiveFile().get().getAsFile());
+    }
+
+    private boolean isCustomLayout() {
+        return this.getModuleAttributes().getOrElse(false)
+            || this.getBaseline().isPresent()
+            || this.getPruneLayers().getOrElse(false)
+            || this.getLayerIndex().getOrElse(false)
+            || this.getClassLoadOrder().isPresent()
+            || this.getBaseArchive().isPresent()
+            || this.getPatchInPlace().getOrElse(false)
+            || !this.getChecksums().getOrElse(List.of()).isEmpty();
+    }
+}
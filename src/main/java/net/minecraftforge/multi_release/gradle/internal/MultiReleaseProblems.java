@@ -31,6 +31,17 @@ abstract class MultiReleaseProblems extends EnhancedProblems {
             .solution(HELP_MESSAGE));
     }
 
+    void reportParallelCompressionWithoutEffect(String taskPath) {
+        report("multi-release-parallel-compression-without-effect", "Parallel compression has no effect", spec -> spec
+            .details("""
+                Parallel compression was enabled for %s, but no other option changes how the JAR is written.
+                The JAR was written by Gradle on a single thread as usual.""".formatted(taskPath))
+            .severity(Severity.WARNING)
+            .solution("Enable parallel compression together with an option that changes how the JAR is written, such as checksums or base archive reuse.")
+            .solution("Disable parallel compression if it is not needed.")
+            .solution(HELP_MESSAGE));
+    }
+
     RuntimeException multiReleaseVersionTooLow(JavaLanguageVersion version, Dependency dependency) {
         var e = new IllegalArgumentException("Multi-release version %s is too low, minimum is 9".formatted(version));
         return throwing(e, "", "", spec -> spec
@@ -42,4 +53,26 @@ abstract class MultiReleaseProblems extends EnhancedProblems {
             .details("Use separately-built JARs for Java versions lower than 9 (i.e. 5, 6, and 8).")
             .details(HELP_MESSAGE));
     }
+
+    RuntimeException classDataVersionTooLow(JavaLanguageVersion version) {
+        var e = new IllegalArgumentException("Class data sharing version %s is too low, minimum is 10".formatted(version));
+        return throwing(e, "", "", spec -> spec
+            .details("""
+                Cannot create an application class data sharing archive for a Java version lower than 10.
+                Requested version: %s""".formatted(version))
+            .severity(Severity.ERROR)
+            .details("Use at least Java 10 for class data sharing archives.")
+            .details(HELP_MESSAGE));
+    }
+
+    RuntimeException toolchainVersionChanged(JavaLanguageVersion registered, JavaLanguageVersion current) {
+        var e = new IllegalStateException("Java toolchain version changed from %s to %s after multi-release tasks were registered".formatted(registered, current));
+        return throwing(e, "", "", spec -> spec
+            .details("""
+                The tasks registered for each multi-release version skip the version of the project's Java toolchain, which was %s at the time.
+                The toolchain has since changed to version %s, so one version would be left out and another would be done twice.""".formatted(registered, current))
+            .severity(Severity.ERROR)
+            .details("Configure the Java toolchain before registering tasks for every multi-release version.")
+            .details(HELP_MESSAGE));
+    }
 }
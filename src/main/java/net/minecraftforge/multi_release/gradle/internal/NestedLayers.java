@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.gradle.api.file.ArchiveOperations;
+import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.specs.Spec;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+/// Flattens layer inputs that are multi-release JARs themselves into the layers of the output JAR.
+///
+/// Layer inputs are either archives or, for project layers, class and resource directories. Only archives can have
+/// nested layers.
+///
+/// A runtime that loads a multi-release dependency directly uses the highest of its `META-INF/versions/M/` entries that
+/// is not above the runtime's version, falling back to the base entry. When such a dependency is added as layer `N`,
+/// the same selection is made ahead of time: nested layers up to `N` replace the base entries they override, and
+/// nested layers above `N` are kept as layers of their own in the output JAR.
+///
+/// The metadata of layer inputs is left out, except for their service files. Runtimes do not read service files from
+/// layers, but [layer pruning][LayerPruning] and the [layer index][LayerIndex] take the providers they list.
+final class NestedLayers {
+    private static final String SERVICES = "META-INF/services/";
+
+    private NestedLayers() { }
+
+    /// Gets the tree of the given layer input, without the entries that are not used by the layer it is added to.
+    ///
+    /// @param archiveOperations The archive operations to open the input with, if it is an archive
+    /// @param objects           The object factory to open the input with, if it is a directory
+    /// @param file              The layer input
+    /// @param version           The version of the layer the input is added to
+    /// @return The filtered tree of the input
+    static FileTree of(ArchiveOperations archiveOperations, ObjectFactory objects, File file, int version) {
+        var nested = read(file);
+        // Class and resource directories are not created if a project has nothing to put in them
+        var tree = file.isFile() ? archiveOperations.zipTree(file) : objects.fileTree().from(file);
+        return tree.matching(filter -> filter.include(include(nested, version)));
+    }
+
+    /// Moves an entry of a nested layer to the layer of the output JAR it belongs to.
+    ///
+    /// This must be called for every file of a layer input that was filtered by [#of].
+    ///
+    /// @param details The file to move
+    /// @param version The version of the layer the input is added to
+    static void remap(FileCopyDetails details, int version) {
+        var path = remap(details.getSourcePath(), version);
+        if (path != null)
+            details.setPath(path);
+    }
+
+    /// Gets the path in the layer of the output JAR that an entry of a nested layer belongs to.
+    ///
+    /// @param path    The path of the entry in the layer input
+    /// @param version The version of the layer the input is added to
+    /// @return The path relative to the layer, or `null` if the entry is not in a nested layer
+    static @Nullable String remap(String path, int version) {
+        var nested = nestedVersion(path);
+        if (nested == 0) return null;
+
+        var target = Math.max(version, nested);
+        return ArchiveEntry.VERSIONS_PREFIX + target + '/' + unversioned(path);
+    }
+
+    private static Spec<FileTreeElement> include(@Nullable Map<String, NavigableSet<Integer>> nested, int version) {
+        return element -> includes(nested, version, element.getRelativePath().getPathString(), element.isDirectory());
+    }
+
+    /// Checks if an entry of a layer input is used by the layer it is added to.
+    ///
+    /// @param nested    The nested layers of the input, as [read][#read(File)] from it
+    /// @param version   The version of the layer the input is added to
+    /// @param path      The path of the entry in the input, without a trailing slash
+    /// @param directory Whether the entry is a directory
+    /// @return Whether the entry is kept
+    static boolean includes(@Nullable Map<String, NavigableSet<Integer>> nested, int version, String path, boolean directory) {
+        if (directory)
+            return !isMetadata(path) || path.equals("META-INF") || path.equals("META-INF/services") || nested != null && path.startsWith("META-INF/versions");
+
+        var nestedVersion = nested != null ? nestedVersion(path) : 0;
+        var unversioned = nestedVersion > 0 ? unversioned(path) : path;
+        if (nestedVersion < 0 || isMetadata(unversioned) && !isService(unversioned))
+            return false;
+
+        // Nested layers above the layer version are kept as they are
+        if (nestedVersion > version)
+            return true;
+
+        // Otherwise only the highest entry that the layer's runtime would use is kept
+        var versions = nested != null ? nested.get(unversioned) : null;
+        var selected = versions != null ? versions.floor(version) : null;
+        return nestedVersion == (selected != null ? selected : 0);
+    }
+
+    /// Reads the nested layers of the given input.
+    ///
+    /// @return The versions of each overridden path, or `null` if the input is not a multi-release JAR
+    static @Nullable Map<String, NavigableSet<Integer>> read(File file) {
+        if (!file.isFile()) return null;
+
+        try (var jar = new JarFile(file)) {
+            var manifest = jar.getManifest();
+            if (manifest == null || !"true".equalsIgnoreCase(manifest.getMainAttributes().getValue(Attributes.Name.MULTI_RELEASE)))
+                return null;
+
+            var ret = new HashMap<String, NavigableSet<Integer>>();
+            var entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                var name = entries.nextElement().getName();
+                var version = nestedVersion(name);
+                if (version > 0 && !name.endsWith("/"))
+                    ret.computeIfAbsent(unversioned(name), k -> new TreeSet<>()).add(version);
+            }
+            return ret;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /// Gets the version of the nested layer the given path is in.
+    ///
+    /// @return The version, `0` if the path is not in a nested layer, or `-1` if it is in an invalid one
+    private static int nestedVersion(String path) {
+        if (!path.startsWith(ArchiveEntry.VERSIONS_PREFIX))
+            return 0;
+
+        var end = path.indexOf('/', ArchiveEntry.VERSIONS_PREFIX.length());
+        if (end < 0)
+            return -1;
+
+        try {
+            var version = Integer.parseInt(path, ArchiveEntry.VERSIONS_PREFIX.length(), end, 10);
+            return version >= 9 ? version : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String unversioned(String path) {
+        return path.substring(path.indexOf('/', ArchiveEntry.VERSIONS_PREFIX.length()) + 1);
+    }
+
+    private static boolean isService(String path) {
+        return path.startsWith(SERVICES) && path.indexOf('/', SERVICES.length()) < 0;
+    }
+
+    private static boolean isMetadata(String path) {
+        return path.equals("META-INF") || path.startsWith("META-INF/") || path.contains("/META-INF/") || path.endsWith("/META-INF");
+    }
+}
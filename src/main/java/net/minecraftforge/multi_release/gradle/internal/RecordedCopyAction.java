@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.tasks.WorkResult;
+
+import java.io.File;
+
+/// The copy action used by [MultiReleaseJar] when none of its layout options are in use, which records the
+/// [read][MultiReleaseEvents.ReadLayer] and [write][MultiReleaseEvents.Write] events of the standard ZIP copy action it
+/// decorates.
+///
+/// The standard copy action writes every entry as it is read, so the read span of a layer includes writing it.
+final class RecordedCopyAction implements CopyAction {
+    private final CopyAction delegate;
+    private final File archive;
+
+    RecordedCopyAction(CopyAction delegate, File archive) {
+        this.delegate = delegate;
+        this.archive = archive;
+    }
+
+    @Override
+    public WorkResult execute(CopyActionProcessingStream stream) {
+        var event = new MultiReleaseEvents.Write();
+        if (!event.isEnabled())
+            return this.delegate.execute(stream);
+
+        event.begin();
+        var reads = new LayerSpans<>(MultiReleaseEvents.ReadLayer::new);
+        var result = this.delegate.execute(action -> stream.process(details -> {
+            var filtering = reads.start(ArchiveEntry.version(details.getRelativePath().getPathString()));
+            var start = System.nanoTime();
+            action.processFile(details);
+
+            var span = reads.current();
+            if (span != null) {
+                span.filtering += filtering;
+                span.writing += System.nanoTime() - start;
+            }
+            event.entries++;
+            reads.finish(details.isDirectory() ? 0 : details.getSize());
+        }));
+        reads.commit();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.archive = this.archive.getName();
+            event.bytes = this.archive.length();
+            event.threads = 1;
+            event.commit();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// A minimal ZIP reader which gives access to the stored (usually compressed) bytes of entries, so that they can be
+/// transferred to another archive without being inflated and deflated again.
+final class ZipReader implements Closeable {
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final FileChannel channel;
+    private final List<Entry> entries;
+    private final Map<String, Entry> byName;
+    private final long centralDirectoryOffset;
+
+    /// An entry as described by the central directory.
+    ///
+    /// @param name           The name of the entry
+    /// @param method         The compression method
+    /// @param crc            The CRC-32 of the uncompressed content
+    /// @param compressedSize The size of the stored content
+    /// @param size           The size of the uncompressed content
+    /// @param dosTime        The MS-DOS timestamp
+    /// @param mode           The Unix mode, or `0` if the archive was not created on Unix
+    /// @param offset         The offset of the entry's local header
+    record Entry(String name, int method, long crc, long compressedSize, long size, int dosTime, int mode, long offset) { }
+
+    ZipReader(File file, Charset charset) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            var endPosition = this.findEndOfCentralDirectory();
+            var end = this.read(endPosition, 22);
+            long count = Short.toUnsignedLong(end.getShort(10));
+            long size = Integer.toUnsignedLong(end.getInt(12));
+            long offset = Integer.toUnsignedLong(end.getInt(16));
+
+            var zip64 = this.findZip64EndOfCentralDirectory(end, endPosition);
+            if (zip64 != null) {
+                count = zip64.getLong(32);
+                size = zip64.getLong(40);
+                offset = zip64.getLong(48);
+            }
+
+            this.centralDirectoryOffset = offset;
+            this.entries = readCentralDirectory(this.read(offset, (int) size), count, charset);
+            this.byName = new HashMap<>(this.entries.size() * 2);
+            for (var entry : this.entries)
+                this.byName.putIfAbsent(entry.name, entry);
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /// Gets all entries of the archive, in the order of the central directory.
+    List<Entry> entries() {
+        return Collections.unmodifiableList(this.entries);
+    }
+
+    /// Gets the entry with the given name.
+    @Nullable Entry get(String name) {
+        return this.byName.get(name);
+    }
+
+    /// Gets the offset of the central directory, which is also where the local entries end.
+    long centralDirectoryOffset() {
+        return this.centralDirectoryOffset;
+    }
+
+    /// Reads the stored bytes of the given entry, exactly as they are in the archive.
+    ZipWriter.Data read(Entry entry) throws IOException {
+        var header = this.read(entry.offset, 30);
+        if (header.getInt(0) != LOCAL_HEADER)
+            throw new IOException("Invalid local header for entry " + entry.name);
+
+        var start = entry.offset + 30 + Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+        var bytes = new byte[Math.toIntExact(entry.compressedSize)];
+        this.read(start, bytes.length).get(bytes);
+        return new ZipWriter.Data(entry.method, entry.crc, entry.size, bytes);
+    }
+
+    private long findEndOfCentralDirectory() throws IOException {
+        var fileSize = this.channel.size();
+        var length = (int) Math.min(fileSize, 22 + 0xFFFF);
+        var tail = this.read(fileSize - length, length);
+        for (int i = length - 22; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY)
+                return fileSize - length + i;
+        }
+
+        throw new IOException("Not a ZIP archive: end of central directory not found");
+    }
+
+    private @Nullable ByteBuffer findZip64EndOfCentralDirectory(ByteBuffer end, long endPosition) throws IOException {
+        if (Short.toUnsignedInt(end.getShort(10)) != 0xFFFF && Integer.toUnsignedLong(end.getInt(12)) != ZIP64_MAGIC && Integer.toUnsignedLong(end.getInt(16)) != ZIP64_MAGIC)
+            return null;
+
+        if (endPosition < 20)
+            return null;
+
+        var locator = this.read(endPosition - 20, 20);
+        if (locator.getInt(0) != ZIP64_LOCATOR)
+            return null;
+
+        var record = this.read(locator.getLong(8), 56);
+        if (record.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY)
+            throw new IOException("Invalid Zip64 end of central directory");
+
+        return record;
+    }
+
+    private static List<Entry> readCentralDirectory(ByteBuffer buffer, long count, Charset charset) throws IOException {
+        var ret = new ArrayList<Entry>((int) Math.min(count, 1 << 16));
+        while (buffer.remaining() >= 46) {
+            var start = buffer.position();
+            if (buffer.getInt(start) != CENTRAL_HEADER)
+                throw new IOException("Invalid central directory header at offset " + start);
+
+            int flags = Short.toUnsignedInt(buffer.getShort(start + 8));
+            int method = Short.toUnsignedInt(buffer.getShort(start + 10));
+            int dosTime = buffer.getInt(start + 12);
+            long crc = Integer.toUnsignedLong(buffer.getInt(start + 16));
+            long compressedSize = Integer.toUnsignedLong(buffer.getInt(start + 20));
+            long size = Integer.toUnsignedLong(buffer.getInt(start + 24));
+            int nameLength = Short.toUnsignedInt(buffer.getShort(start + 28));
+            int extraLength = Short.toUnsignedInt(buffer.getShort(start + 30));
+            int commentLength = Short.toUnsignedInt(buffer.getShort(start + 32));
+            int madeBy = Short.toUnsignedInt(buffer.getShort(start + 4)) >>> 8;
+            int mode = madeBy == 3 ? buffer.getInt(start + 38) >>> 16 : 0;
+            long offset = Integer.toUnsignedLong(buffer.getInt(start + 42));
+
+            var nameBytes = new byte[nameLength];
+            buffer.position(start + 46).get(nameBytes);
+            var name = new String(nameBytes, (flags & UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : charset);
+
+            // Values that do not fit are stored in the Zip64 extra field, in this order
+            var extra = buffer.slice(start + 46 + nameLength, extraLength).order(ByteOrder.LITTLE_ENDIAN);
+            while (extra.remaining() >= 4) {
+                int id = Short.toUnsignedInt(extra.getShort());
+                int length = Short.toUnsignedInt(extra.getShort());
+                var data = extra.slice(extra.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+                extra.position(extra.position() + length);
+                if (id != 0x0001)
+                    continue;
+
+                if (size == ZIP64_MAGIC) size = data.getLong();
+                if (compressedSize == ZIP64_MAGIC) compressedSize = data.getLong();
+                if (offset == ZIP64_MAGIC) offset = data.getLong();
+            }
+
+            ret.add(new Entry(name, method, crc, compressedSize, size, dosTime, mode, offset));
+            buffer.position(start + 46 + nameLength + extraLength + commentLength);
+        }
+
+        return ret;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException();
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
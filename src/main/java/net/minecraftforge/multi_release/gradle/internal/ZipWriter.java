@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/// A minimal ZIP writer which gives the multi-release JAR full control over the entries it writes and in which order.
+///
+/// Entries are written in the order they are given without data descriptors. The central directory is written on
+/// [close][#close()], using the Zip64 format only if it is both required and allowed.
+final class ZipWriter implements Closeable {
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final int MADE_BY_UNIX = 3 << 8;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final OutputStream out;
+    private final Charset charset;
+    private final boolean zip64;
+    private final Map<String, ZipReader.Entry> kept;
+    private final List<Central> central = new ArrayList<>();
+    private long offset;
+
+    /// The stored form of an entry's content.
+    ///
+    /// @param method The compression method, either [#STORED] or [#DEFLATED]
+    /// @param crc    The CRC-32 of the uncompressed content
+    /// @param size   The size of the uncompressed content
+    /// @param bytes  The content as it is stored in the archive
+    record Data(int method, long crc, long size, byte[] bytes) {
+        static final Data EMPTY = new Data(STORED, 0, 0, new byte[0]);
+
+        /// Prepares the given content to be written, deflating it with the given deflater if it is not `null`.
+        static Data of(byte[] content, @Nullable Deflater deflater) {
+            var crc = new CRC32();
+            crc.update(content);
+
+            if (deflater == null)
+                return new Data(STORED, crc.getValue(), content.length, content);
+
+            deflater.reset();
+            deflater.setInput(content);
+            deflater.finish();
+
+            var out = new ByteArrayOutputStream(Math.max(32, content.length / 2));
+            var buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return new Data(DEFLATED, crc.getValue(), content.length, out.toByteArray());
+        }
+    }
+
+    private record Central(byte[] name, int method, int dosTime, long crc, long compressedSize, long size, int mode, long offset) { }
+
+    ZipWriter(OutputStream out, Charset charset, boolean zip64) {
+        this(out, charset, zip64, 0, Map.of());
+    }
+
+    /// Creates a writer that continues an existing archive whose local entries end at the given offset.
+    ///
+    /// The kept entries are not written again. When they are given to [#write], only their central directory record
+    /// is written, pointing to the local entry that is already in the archive.
+    ///
+    /// @param out    The stream to append to, positioned at the given offset
+    /// @param offset The offset the stream starts at
+    /// @param kept   The entries of the existing archive to keep, by name
+    ZipWriter(OutputStream out, Charset charset, boolean zip64, long offset, Map<String, ZipReader.Entry> kept) {
+        this.out = out;
+        this.charset = charset;
+        this.zip64 = zip64;
+        this.offset = offset;
+        this.kept = kept;
+    }
+
+    /// Checks if the given entry is kept from the existing archive, in which case its data is not needed.
+    boolean keeps(ArchiveEntry entry) {
+        return this.kept.containsKey(entry.name);
+    }
+
+    void write(ArchiveEntry entry, Data data) throws IOException {
+        var name = entry.name.getBytes(this.charset);
+        var existing = this.kept.get(entry.name);
+        if (existing != null) {
+            this.central.add(new Central(name, existing.method(), existing.dosTime(), existing.crc(), existing.compressedSize(), existing.size(), entry.mode, existing.offset()));
+            return;
+        }
+
+        var header = new Central(name, data.method, dosTime(entry.time), data.crc, data.bytes.length, data.size, entry.mode, this.offset);
+        this.central.add(header);
+
+        this.writeLocalHeader(header);
+        this.writeBytes(data.bytes);
+    }
+
+    private void writeLocalHeader(Central header) throws IOException {
+        this.writeInt(LOCAL_HEADER);
+        this.writeShort(header.method == DEFLATED ? 20 : 10);
+        this.writeShort(this.flags());
+        this.writeShort(header.method);
+        this.writeInt(header.dosTime);
+        this.writeInt(header.crc);
+        this.writeInt(header.compressedSize);
+        this.writeInt(header.size);
+        this.writeShort(header.name.length);
+        this.writeShort(0);
+        this.writeBytes(header.name);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.finish();
+        } finally {
+            this.out.close();
+        }
+    }
+
+    private void finish() throws IOException {
+        var start = this.offset;
+        for (var header : this.central) {
+            boolean needsZip64 = header.offset >= ZIP64_MAGIC;
+            if (needsZip64 && !this.zip64)
+                throw zip64Required();
+
+            this.writeInt(CENTRAL_HEADER);
+            this.writeShort(MADE_BY_UNIX | (needsZip64 ? 45 : 20));
+            this.writeShort(needsZip64 ? 45 : header.method == DEFLATED ? 20 : 10);
+            this.writeShort(this.flags());
+            this.writeShort(header.method);
+            this.writeInt(header.dosTime);
+            this.writeInt(header.crc);
+            this.writeInt(header.compressedSize);
+            this.writeInt(header.size);
+            this.writeShort(header.name.length);
+            this.writeShort(needsZip64 ? 12 : 0);
+            this.writeShort(0); // comment length
+            this.writeShort(0); // disk number
+            this.writeShort(0); // internal attributes
+            this.writeInt((long) header.mode << 16);
+            this.writeInt(needsZip64 ? ZIP64_MAGIC : header.offset);
+            this.writeBytes(header.name);
+            if (needsZip64) {
+                this.writeShort(0x0001);
+                this.writeShort(8);
+                this.writeLong(header.offset);
+            }
+        }
+
+        var size = this.offset - start;
+        var count = this.central.size();
+        boolean needsZip64 = count >= 0xFFFF || start >= ZIP64_MAGIC || size >= ZIP64_MAGIC;
+        if (needsZip64) {
+            if (!this.zip64)
+                throw zip64Required();
+
+            var record = this.offset;
+            this.writeInt(ZIP64_END_OF_CENTRAL_DIRECTORY);
+            this.writeLong(44);
+            this.writeShort(MADE_BY_UNIX | 45);
+            this.writeShort(45);
+            this.writeInt(0);
+            this.writeInt(0);
+            this.writeLong(count);
+            this.writeLong(count);
+            this.writeLong(size);
+            this.writeLong(start);
+
+            this.writeInt(ZIP64_LOCATOR);
+            this.writeInt(0);
+            this.writeLong(record);
+            this.writeInt(1);
+        }
+
+        this.writeInt(END_OF_CENTRAL_DIRECTORY);
+        this.writeShort(0);
+        this.writeShort(0);
+        this.writeShort(Math.min(count, 0xFFFF));
+        this.writeShort(Math.min(count, 0xFFFF));
+        this.writeInt(Math.min(size, ZIP64_MAGIC));
+        this.writeInt(Math.min(start, ZIP64_MAGIC));
+        this.writeShort(0);
+        this.out.flush();
+    }
+
+    private int flags() {
+        return this.charset.equals(StandardCharsets.UTF_8) ? UTF8_FLAG : 0;
+    }
+
+    private static IOException zip64Required() {
+        return new IOException("The archive contains too many entries or is too large for the standard ZIP format. To build this archive, please enable the zip64 extension.");
+    }
+
+    /// Converts a Java timestamp to the MS-DOS date and time format used by ZIP entries, in the local time zone.
+    static int dosTime(long time) {
+        var date = Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()).toLocalDateTime();
+        if (date.getYear() < 1980)
+            return (1 << 21) | (1 << 16);
+
+        return (date.getYear() - 1980) << 25
+            | date.getMonthValue() << 21
+            | date.getDayOfMonth() << 16
+            | date.getHour() << 11
+            | date.getMinute() << 5
+            | date.getSecond() >> 1;
+    }
+
+    /* PRIMITIVES */
+
+    private void writeShort(int value) throws IOException {
+        this.out.write(value & 0xFF);
+        this.out.write((value >>> 8) & 0xFF);
+        this.offset += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        this.writeShort((int) (value & 0xFFFF));
+        this.writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private void writeLong(long value) throws IOException {
+        this.writeInt(value & ZIP64_MAGIC);
+        this.writeInt(value >>> 32);
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        this.out.write(bytes);
+        this.offset += bytes.length;
+    }
+}
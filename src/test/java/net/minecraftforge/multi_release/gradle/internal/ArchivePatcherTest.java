@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.file;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.multiRelease;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.names;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.read;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ArchivePatcherTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void patchesChangedEntries() throws IOException {
+        var file = write(this.dir.resolve("example.jar").toFile(), multiRelease("base", "java11"), true, false);
+        var unchanged = offset(file, "example/Base.txt");
+
+        var entries = multiRelease("base", "java17");
+        entries.removeIf(entry -> entry.name.equals("example/Other.txt"));
+        entries.add(file("example/Added.txt", "added"));
+        patch(file, entries);
+
+        // Unchanged entries stay where they are, changed and added ones are appended
+        assertEquals(unchanged, offset(file, "example/Base.txt"));
+        try (var jar = new JarFile(file, true, ZipFile.OPEN_READ, Runtime.Version.parse("11"))) {
+            assertEquals(names(entries), jar.stream().map(ZipEntry::getName).toList());
+            assertEquals("java17", read(jar, jar.getJarEntry("example/Greeter.txt")));
+            assertEquals("added", read(jar, jar.getJarEntry("example/Added.txt")));
+            assertNull(jar.getJarEntry("example/Other.txt"));
+        }
+
+        try (var in = new JarInputStream(new FileInputStream(file))) {
+            assertNotNull(in.getManifest());
+        }
+    }
+
+    @Test
+    void rewritesWhenManifestChanges() throws IOException {
+        var file = write(this.dir.resolve("example.jar").toFile(), multiRelease("base", "java11"), true, false);
+
+        var entries = multiRelease("base", "java11");
+        entries.set(1, file("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n"));
+        assertNull(ArchivePatcher.plan(file, StandardCharsets.UTF_8, true, entries));
+    }
+
+    @Test
+    void rewritesWhenCompressionChanges() throws IOException {
+        var file = write(this.dir.resolve("example.jar").toFile(), multiRelease("base", "java11"), true, false);
+        assertNull(ArchivePatcher.plan(file, StandardCharsets.UTF_8, false, multiRelease("base", "java11")));
+    }
+
+    @Test
+    void rewritesFragmentedArchives() throws IOException {
+        var entries = multiRelease("base", "java11");
+        entries.add(file("example/Large.bin", random(1, 4096)));
+        var file = write(this.dir.resolve("example.jar").toFile(), entries, true, false);
+
+        // Replacing the largest entry would leave most of the archive unreferenced
+        entries.set(entries.size() - 1, file("example/Large.bin", random(2, 4096)));
+        assertNull(ArchivePatcher.plan(file, StandardCharsets.UTF_8, true, entries));
+    }
+
+    @Test
+    void rewritesMissingOrUnreadableArchives() throws IOException {
+        var missing = this.dir.resolve("missing.jar").toFile();
+        assertNull(ArchivePatcher.plan(missing, StandardCharsets.UTF_8, true, multiRelease("base", "java11")));
+
+        var truncated = this.dir.resolve("truncated.jar");
+        Files.write(truncated, new byte[64]);
+        assertNull(ArchivePatcher.plan(truncated.toFile(), StandardCharsets.UTF_8, true, multiRelease("base", "java11")));
+    }
+
+    private static void patch(File file, List<ArchiveEntry> entries) throws IOException {
+        var patcher = ArchivePatcher.plan(file, StandardCharsets.UTF_8, true, entries);
+        assertNotNull(patcher);
+        try (var compressor = new EntryCompressor(true, 1);
+             var writer = patcher.open(StandardCharsets.UTF_8, false)) {
+            compressor.writeAll(entries, writer);
+        }
+    }
+
+    private static byte[] random(long seed, int size) {
+        var ret = new byte[size];
+        new Random(seed).nextBytes(ret);
+        return ret;
+    }
+
+    private static long offset(File file, String name) throws IOException {
+        try (var reader = new ZipReader(file, StandardCharsets.UTF_8)) {
+            return reader.get(name).offset();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.directory;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.file;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.names;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BaselineLayersTest {
+    @Test
+    void foldsLayersAtOrBelowTheBaseline() {
+        var entries = List.of(
+            directory("com/example/"),
+            file("com/example/Greeter.class", "base"),
+            file("com/example/Base.class", "base"),
+            directory("META-INF/versions/11/com/example/"),
+            file("META-INF/versions/11/com/example/Greeter.class", "java11"),
+            file("META-INF/versions/11/com/example/Java11.class", "java11"),
+            file("META-INF/versions/17/com/example/Greeter.class", "java17"),
+            file("META-INF/versions/21/com/example/Greeter.class", "java21")
+        );
+
+        var folded = BaselineLayers.apply(entries, 17);
+        assertEquals(List.of(
+            "com/example/",
+            "com/example/Greeter.class",
+            "com/example/Base.class",
+            "com/example/Java11.class",
+            "META-INF/versions/21/com/example/Greeter.class"
+        ), names(folded));
+
+        // The highest layer at or below the baseline replaces the base entry in place
+        assertEquals("java17", content(folded.get(1)));
+        assertEquals("java11", content(folded.get(3)));
+        assertEquals("java21", content(folded.get(4)));
+    }
+
+    @Test
+    void keepsLayersAboveTheBaseline() {
+        var entries = List.of(
+            file("com/example/Greeter.class", "base"),
+            file("META-INF/versions/11/com/example/Greeter.class", "java11"),
+            file("META-INF/versions/17/com/example/Greeter.class", "java17")
+        );
+
+        assertEquals(names(entries), names(BaselineLayers.apply(entries, 9)));
+    }
+
+    @Test
+    void keepsServiceFilesOfLayers() {
+        var entries = List.of(
+            file("META-INF/services/com.example.Service", "com.example.Base"),
+            file("META-INF/versions/11/META-INF/services/com.example.Service", "com.example.Java11"),
+            file("META-INF/versions/11/com/example/Java11.class", "java11")
+        );
+
+        var folded = BaselineLayers.apply(entries, 11);
+        assertEquals(List.of(
+            "META-INF/services/com.example.Service",
+            "com/example/Java11.class",
+            "META-INF/versions/11/META-INF/services/com.example.Service"
+        ), names(folded));
+        assertEquals("com.example.Base", content(folded.get(0)));
+    }
+
+    private static String content(ArchiveEntry entry) {
+        return new String(entry.data(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.directory;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.file;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.names;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClassLoadOrderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsUnifiedLogging() throws IOException {
+        var profile = this.profile("""
+            [0.004s][info][class,path] opened: /usr/lib/jvm/lib/modules
+            [0.012s][info][class,load] java.lang.Object source: shared objects file
+            [0.120s][info][class,load] com.example.Main source: file:/app/example.jar
+            [0.121s][info][class,load] com.example.Main$Inner source: file:/app/example.jar
+            """);
+
+        assertEquals(List.of("java/lang/Object", "com/example/Main", "com/example/Main$Inner"), ClassLoadOrder.read(profile));
+    }
+
+    @Test
+    void readsVerboseClass() throws IOException {
+        var profile = this.profile("""
+            [Opened /usr/lib/jvm/jre/lib/rt.jar]
+            [Loaded java.lang.Object from /usr/lib/jvm/jre/lib/rt.jar]
+            [Loaded com.example.Main from file:/app/example.jar]
+            """);
+
+        assertEquals(List.of("java/lang/Object", "com/example/Main"), ClassLoadOrder.read(profile));
+    }
+
+    @Test
+    void readsClassList() throws IOException {
+        var profile = this.profile("""
+            # NOTE: Do not modify this file.
+            java/lang/Object id: 0
+            com/example/Main id: 1 super: 0 source: /app/example.jar
+            @lambda-proxy com/example/Main run ()Ljava/lang/Runnable; ()V REF_invokeStatic com/example/Main lambda$main$0 ()V ()V
+            @lambda-form-invoker [LF_RESOLVE] java.lang.invoke.DirectMethodHandle$Holder invokeStatic L_V
+            """);
+
+        assertEquals(List.of("java/lang/Object", "com/example/Main"), ClassLoadOrder.read(profile));
+    }
+
+    @Test
+    void readsMixedProfilesOnce() throws IOException {
+        var profile = this.profile("""
+            com/example/Main id: 1
+
+            [Loaded com.example.Main from file:/app/example.jar]
+            [0.120s][info][class,load] com.example.Other source: file:/app/example.jar
+            com/example/Main id: 1
+            """);
+
+        assertEquals(List.of("com/example/Main", "com/example/Other"), ClassLoadOrder.read(profile));
+    }
+
+    @Test
+    void skipsHiddenClasses() throws IOException {
+        var profile = this.profile("""
+            [0.130s][info][class,load] com.example.Main$$Lambda/0x0000000801001200 source: com.example.Main
+            [0.131s][info][class,load] java.lang.invoke.LambdaForm$MH/0x0000000801002000 source: __JVM_LookupDefineClass__
+            [0.132s][info][class,load] com.example.Main source: file:/app/example.jar
+            """);
+
+        assertEquals(List.of("com/example/Main"), ClassLoadOrder.read(profile));
+    }
+
+    @Test
+    void sortsLoadedClassesFirst() {
+        var entries = List.of(
+            directory("META-INF/"),
+            file("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n"),
+            directory("com/example/"),
+            file("com/example/A.class", "a"),
+            file("com/example/B.class", "b"),
+            file("com/example/C.class", "c"),
+            file("com/example/data.txt", "data")
+        );
+
+        var sorted = ClassLoadOrder.sort(entries, List.of("java/lang/Object", "com/example/C", "com/example/A"));
+        assertEquals(List.of(
+            "META-INF/",
+            "META-INF/MANIFEST.MF",
+            "com/example/C.class",
+            "com/example/A.class",
+            "com/example/",
+            "com/example/B.class",
+            "com/example/data.txt"
+        ), names(sorted));
+    }
+
+    @Test
+    void sortsOverridesAfterTheirBase() {
+        var entries = List.of(
+            file("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n"),
+            file("com/example/A.class", "a"),
+            file("com/example/B.class", "b"),
+            file("META-INF/versions/17/com/example/A.class", "a17"),
+            file("META-INF/versions/11/com/example/A.class", "a11"),
+            file("META-INF/versions/11/com/example/B.class", "b11"),
+            file("META-INF/versions/11/com/example/Only.class", "only")
+        );
+
+        var sorted = ClassLoadOrder.sort(entries, List.of("com/example/B", "com/example/A", "com/example/Only"));
+        assertEquals(List.of(
+            "META-INF/MANIFEST.MF",
+            "com/example/B.class",
+            "META-INF/versions/11/com/example/B.class",
+            "com/example/A.class",
+            "META-INF/versions/11/com/example/A.class",
+            "META-INF/versions/17/com/example/A.class",
+            "META-INF/versions/11/com/example/Only.class"
+        ), names(sorted));
+    }
+
+    @Test
+    void keepsLayerIndexAfterManifest() {
+        var entries = List.of(
+            directory("META-INF/"),
+            file("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n"),
+            file(LayerIndex.NAME, "Multi-Release-Index-Version: 1\n"),
+            file("com/example/A.class", "a")
+        );
+
+        var sorted = ClassLoadOrder.sort(entries, List.of("com/example/A"));
+        assertEquals(List.of("META-INF/", "META-INF/MANIFEST.MF", LayerIndex.NAME, "com/example/A.class"), names(sorted));
+    }
+
+    private File profile(String content) throws IOException {
+        var file = this.dir.resolve("classes.log");
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+}
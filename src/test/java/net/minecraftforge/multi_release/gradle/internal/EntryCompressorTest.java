@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.directory;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.file;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.multiRelease;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class EntryCompressorTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesTheSameArchiveOnAnyNumberOfThreads() throws IOException {
+        // More entries than the compression window, of sizes that take different times to deflate
+        var entries = multiRelease("base", "java11");
+        var random = new Random(0);
+        for (int i = 0; i < 200; i++) {
+            if (i % 20 == 0)
+                entries.add(directory("data/" + i + "/"));
+
+            var content = new byte[random.nextInt(i % 7 == 0 ? 65536 : 512)];
+            for (int j = 0; j < content.length; j++)
+                content[j] = (byte) ('a' + random.nextInt(4));
+            entries.add(file("data/" + (i / 20 * 20) + "/" + i + ".txt", content));
+        }
+
+        var serial = Files.readAllBytes(this.write("serial.jar", entries, 1).toPath());
+        for (var threads : List.of(2, 4, 16))
+            assertArrayEquals(serial, Files.readAllBytes(this.write("parallel-" + threads + ".jar", entries, threads).toPath()));
+    }
+
+    private File write(String name, List<ArchiveEntry> entries, int threads) throws IOException {
+        var file = this.dir.resolve(name).toFile();
+        try (var compressor = new EntryCompressor(true, threads);
+             var writer = new ZipWriter(new BufferedOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8, false)) {
+            compressor.writeAll(entries, writer);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.directory;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.file;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.names;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LayerIndexTest {
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    @Test
+    void listsWhatEachVersionAdds() {
+        var entries = List.of(
+            directory("META-INF/"),
+            file(MANIFEST, "Manifest-Version: 1.0\r\n\r\n"),
+            file("com/example/Greeter.class", "base"),
+            file("com/example/data.txt", "data"),
+            file("module-info.class", "module"),
+            file("META-INF/versions/11/com/example/Greeter.class", "java11"),
+            file("META-INF/versions/11/com/example/java11/Only.class", "java11"),
+            file("META-INF/versions/17/com/example/java17/Only.class", "java17")
+        );
+
+        assertEquals("""
+            Multi-Release-Index-Version: 1
+            @0
+            C com.example.Greeter
+            P com/example
+            @11
+            C com.example.java11.Only
+            P com/example/java11
+            @17
+            C com.example.java17.Only
+            P com/example/java17
+            """, index(LayerIndex.apply(entries)));
+    }
+
+    @Test
+    void replacesServicesOfLowerVersions() {
+        var entries = List.of(
+            file(MANIFEST, "Manifest-Version: 1.0\r\n\r\n"),
+            file("META-INF/services/com.example.Service", "# Providers\ncom.example.Base\ncom.example.Base\n"),
+            file("META-INF/services/com.example.Other", "com.example.Other"),
+            file("META-INF/versions/11/META-INF/services/com.example.Service", "com.example.Base\ncom.example.Java11 # newer\n"),
+            file("META-INF/versions/11/META-INF/services/com.example.Other", "com.example.Other"),
+            file("META-INF/versions/17/META-INF/services/com.example.Java17", "com.example.Java17")
+        );
+
+        assertEquals("""
+            Multi-Release-Index-Version: 1
+            @0
+            S com.example.Other com.example.Other
+            S com.example.Service com.example.Base
+            @11
+            S com.example.Service com.example.Base com.example.Java11
+            @17
+            S com.example.Java17 com.example.Java17
+            """, index(LayerIndex.apply(entries)));
+    }
+
+    @Test
+    void placesIndexAfterManifest() {
+        var entries = List.of(
+            directory("META-INF/"),
+            ArchiveEntry.of(MANIFEST, TestArchives.TIME + 60_000, "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8)),
+            file(LayerIndex.NAME, "stale"),
+            file("com/example/Greeter.class", "base")
+        );
+
+        var indexed = LayerIndex.apply(entries);
+        assertEquals(List.of("META-INF/", MANIFEST, LayerIndex.NAME, "com/example/Greeter.class"), names(indexed));
+        assertEquals(TestArchives.TIME + 60_000, indexed.get(2).time);
+    }
+
+    private static String index(List<ArchiveEntry> entries) {
+        for (var entry : entries) {
+            if (entry.name.equals(LayerIndex.NAME))
+                return new String(entry.data(), StandardCharsets.UTF_8);
+        }
+        throw new AssertionError("No index in " + names(entries));
+    }
+}
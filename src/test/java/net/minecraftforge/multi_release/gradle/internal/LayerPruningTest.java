@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.gradle.api.InvalidUserDataException;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.util.List;
+
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.directory;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.file;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.names;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LayerPruningTest {
+    @Test
+    void keepsWhatOverridesReach() throws IOException {
+        var entries = List.of(
+            type("com/example/Greeter.class", "java/lang/Object"),
+            type("META-INF/versions/11/com/example/Greeter.class", "com/example/Helper"),
+            type("META-INF/versions/11/com/example/Helper.class", "java/lang/Object", "(Lcom/example/Argument;)V"),
+            type("META-INF/versions/11/com/example/Argument.class", "java/lang/Object"),
+            type("META-INF/versions/11/com/example/Unused.class", "com/example/Helper")
+        );
+
+        assertEquals(List.of(
+            "com/example/Greeter.class",
+            "META-INF/versions/11/com/example/Greeter.class",
+            "META-INF/versions/11/com/example/Helper.class",
+            "META-INF/versions/11/com/example/Argument.class"
+        ), names(LayerPruning.apply(entries, List.of())));
+    }
+
+    @Test
+    void keepsOverridesOfLowerLayers() throws IOException {
+        var entries = List.of(
+            type("META-INF/versions/11/com/example/Java11.class", "java/lang/Object"),
+            type("META-INF/versions/17/com/example/Java11.class", "java/lang/Object"),
+            type("META-INF/versions/11/com/example/Unused.class", "java/lang/Object"),
+            type("META-INF/versions/17/com/example/Unused17.class", "java/lang/Object")
+        );
+
+        assertEquals(List.of(
+            "META-INF/versions/11/com/example/Java11.class",
+            "META-INF/versions/17/com/example/Java11.class"
+        ), names(LayerPruning.apply(entries, List.of())));
+    }
+
+    @Test
+    void keepsClassesTheBaseNames() throws IOException {
+        var entries = List.of(
+            type("com/example/Main.class", "java/lang/Object", "com.example.Java11Impl"),
+            type("META-INF/versions/11/com/example/Java11Impl.class", "java/lang/Object"),
+            type("META-INF/versions/11/com/example/Java17Impl.class", "java/lang/Object")
+        );
+
+        assertEquals(List.of(
+            "com/example/Main.class",
+            "META-INF/versions/11/com/example/Java11Impl.class"
+        ), names(LayerPruning.apply(entries, List.of())));
+    }
+
+    @Test
+    void keepsClassesNamedByStringConstants() throws IOException {
+        var entries = List.of(
+            type("com/example/Greeter.class", "java/lang/Object"),
+            type("META-INF/versions/11/com/example/Greeter.class", "java/lang/Object", "com.example.Reflected", "[Lcom/example/Array;"),
+            type("META-INF/versions/11/com/example/Reflected.class", "java/lang/Object"),
+            type("META-INF/versions/11/com/example/Array.class", "java/lang/Object"),
+            type("META-INF/versions/11/com/example/Unused.class", "java/lang/Object")
+        );
+
+        assertEquals(List.of(
+            "com/example/Greeter.class",
+            "META-INF/versions/11/com/example/Greeter.class",
+            "META-INF/versions/11/com/example/Reflected.class",
+            "META-INF/versions/11/com/example/Array.class"
+        ), names(LayerPruning.apply(entries, List.of())));
+    }
+
+    @Test
+    void keepsServiceProviders() throws IOException {
+        var entries = List.of(
+            file("META-INF/versions/11/META-INF/services/com.example.Service", "# Providers\ncom.example.Provider # the only one\n"),
+            type("META-INF/versions/11/com/example/Provider.class", "java/lang/Object"),
+            type("META-INF/versions/11/com/example/Unused.class", "java/lang/Object")
+        );
+
+        assertEquals(List.of(
+            "META-INF/versions/11/META-INF/services/com.example.Service",
+            "META-INF/versions/11/com/example/Provider.class"
+        ), names(LayerPruning.apply(entries, List.of())));
+    }
+
+    @Test
+    void keepsClassesMatchingRules() throws IOException {
+        var entries = List.of(
+            type("META-INF/versions/11/com/example/impl/Kept.class", "java/lang/Object"),
+            type("META-INF/versions/11/com/example/impl/nested/Nested.class", "java/lang/Object"),
+            type("META-INF/versions/11/com/example/Other.class", "java/lang/Object")
+        );
+
+        assertEquals(List.of(
+            "META-INF/versions/11/com/example/impl/Kept.class"
+        ), names(LayerPruning.apply(entries, List.of("com.example.impl.*"))));
+
+        assertEquals(List.of(
+            "META-INF/versions/11/com/example/impl/Kept.class",
+            "META-INF/versions/11/com/example/impl/nested/Nested.class"
+        ), names(LayerPruning.apply(entries, List.of("com.example.impl.**"))));
+
+        assertThrows(InvalidUserDataException.class, () -> LayerPruning.apply(entries, List.of(" ")));
+    }
+
+    @Test
+    void removesDirectoriesLeftEmpty() throws IOException {
+        var entries = List.of(
+            directory("com/"),
+            directory("com/example/"),
+            type("com/example/Greeter.class", "java/lang/Object"),
+            directory("META-INF/versions/"),
+            directory("META-INF/versions/11/"),
+            directory("META-INF/versions/11/com/"),
+            directory("META-INF/versions/11/com/example/"),
+            type("META-INF/versions/11/com/example/Greeter.class", "java/lang/Object"),
+            directory("META-INF/versions/11/com/example/unused/"),
+            type("META-INF/versions/11/com/example/unused/Unused.class", "java/lang/Object"),
+            directory("META-INF/versions/11/com/example/data/"),
+            file("META-INF/versions/11/com/example/data/data.txt", "data")
+        );
+
+        assertEquals(List.of(
+            "com/",
+            "com/example/",
+            "com/example/Greeter.class",
+            "META-INF/versions/",
+            "META-INF/versions/11/",
+            "META-INF/versions/11/com/",
+            "META-INF/versions/11/com/example/",
+            "META-INF/versions/11/com/example/Greeter.class",
+            "META-INF/versions/11/com/example/data/",
+            "META-INF/versions/11/com/example/data/data.txt"
+        ), names(LayerPruning.apply(entries, List.of())));
+    }
+
+    /// Creates a class file entry whose constant pool holds its super class and the given strings.
+    private static ArchiveEntry type(String name, String superName, String... strings) {
+        var entry = file(name, new byte[0]);
+        var path = entry.path();
+
+        var writer = new ClassWriter(0);
+        writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, path.substring(0, path.length() - ".class".length()), null, superName, null);
+        var method = writer.visitMethod(Opcodes.ACC_STATIC, "strings", "()V", null, null);
+        method.visitCode();
+        for (var string : strings) {
+            method.visitLdcInsn(string);
+            method.visitInsn(Opcodes.POP);
+        }
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(1, 0);
+        method.visitEnd();
+        writer.visitEnd();
+
+        return file(name, writer.toByteArray());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.lang.module.ModuleDescriptor;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.directory;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.file;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ModuleAttributesTest {
+    private static final String MANIFEST = "Manifest-Version: 1.0\r\nMain-Class: com.example.app.Main\r\n\r\n";
+
+    @Test
+    void listsThePackagesOfEachVersion() throws IOException {
+        var entries = List.of(
+            file("META-INF/MANIFEST.MF", MANIFEST),
+            file("META-INF/services/com.example.Service", "com.example.Impl"),
+            moduleInfo("module-info.class"),
+            directory("com/example/"),
+            directory("com/example/empty/"),
+            file("com/example/Base.class", "base"),
+            file("com/example/resources/data.txt", "data"),
+            file("com/example/1invalid/data.txt", "data"),
+            moduleInfo("META-INF/versions/11/module-info.class"),
+            file("META-INF/versions/11/com/example/java11/Java11.class", "java11"),
+            moduleInfo("META-INF/versions/17/module-info.class"),
+            file("META-INF/versions/17/com/example/java17/Java17.class", "java17")
+        );
+
+        var rewritten = ModuleAttributes.apply(entries);
+        assertEquals(Set.of("com.example", "com.example.resources"), descriptor(rewritten.get(2)).packages());
+        assertEquals(Set.of("com.example", "com.example.resources", "com.example.java11"), descriptor(rewritten.get(8)).packages());
+        assertEquals(Set.of("com.example", "com.example.resources", "com.example.java11", "com.example.java17"), descriptor(rewritten.get(10)).packages());
+    }
+
+    @Test
+    void setsTheMainClassWhereItsPackageIsInTheModule() throws IOException {
+        var entries = List.of(
+            file("META-INF/MANIFEST.MF", MANIFEST),
+            moduleInfo("module-info.class"),
+            file("com/example/Base.class", "base"),
+            moduleInfo("META-INF/versions/11/module-info.class"),
+            file("META-INF/versions/11/com/example/app/Main.class", "main")
+        );
+
+        var rewritten = ModuleAttributes.apply(entries);
+        assertEquals(Optional.empty(), descriptor(rewritten.get(1)).mainClass());
+        assertEquals(Optional.of("com.example.app.Main"), descriptor(rewritten.get(3)).mainClass());
+    }
+
+    @Test
+    void keepsEntriesWithoutModuleInfo() throws IOException {
+        var entries = List.of(
+            file("META-INF/MANIFEST.MF", MANIFEST),
+            file("com/example/app/Main.class", "main")
+        );
+
+        assertEquals(entries, ModuleAttributes.apply(entries));
+    }
+
+    private static ArchiveEntry moduleInfo(String name) {
+        var writer = new ClassWriter(0);
+        writer.visit(Opcodes.V9, Opcodes.ACC_MODULE, "module-info", null, null, null);
+        var module = writer.visitModule("com.example", 0, null);
+        module.visitRequire("java.base", Opcodes.ACC_MANDATED, null);
+        module.visitPackage("com/example/stale");
+        module.visitEnd();
+        writer.visitEnd();
+        return file(name, writer.toByteArray());
+    }
+
+    private static ModuleDescriptor descriptor(ArchiveEntry entry) {
+        return ModuleDescriptor.read(ByteBuffer.wrap(entry.data()));
+    }
+}
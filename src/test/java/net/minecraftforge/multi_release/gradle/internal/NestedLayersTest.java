@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NestedLayersTest {
+    private static final String BASE = "example/Greeter.class";
+    private static final String JAVA11 = "META-INF/versions/11/example/Greeter.class";
+    private static final String JAVA17 = "META-INF/versions/17/example/Greeter.class";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsNestedLayers() throws IOException {
+        var nested = NestedLayers.read(this.jar("nested.jar", true, BASE, JAVA11, JAVA17, "META-INF/versions/11/example/Other.class"));
+        assertEquals(Map.of("example/Greeter.class", new TreeSet<>(List.of(11, 17)), "example/Other.class", new TreeSet<>(List.of(11))), nested);
+
+        // Only multi-release JARs have nested layers
+        assertNull(NestedLayers.read(this.jar("plain.jar", false, BASE, JAVA11)));
+        assertNull(NestedLayers.read(this.dir.toFile()));
+    }
+
+    @Test
+    void selectsWhatTheLayerRuntimeUses() {
+        var nested = Map.<String, NavigableSet<Integer>>of("example/Greeter.class", new TreeSet<>(List.of(11, 17)));
+
+        // Below every nested layer, the base is used and the nested layers are kept
+        assertTrue(NestedLayers.includes(nested, 9, BASE, false));
+        assertTrue(NestedLayers.includes(nested, 9, JAVA11, false));
+        assertTrue(NestedLayers.includes(nested, 9, JAVA17, false));
+
+        // Base entries hidden by a nested override are dropped, along with lower overrides
+        assertFalse(NestedLayers.includes(nested, 11, BASE, false));
+        assertTrue(NestedLayers.includes(nested, 11, JAVA11, false));
+        assertTrue(NestedLayers.includes(nested, 11, JAVA17, false));
+
+        assertFalse(NestedLayers.includes(nested, 21, BASE, false));
+        assertFalse(NestedLayers.includes(nested, 21, JAVA11, false));
+        assertTrue(NestedLayers.includes(nested, 21, JAVA17, false));
+
+        // Entries that are not overridden are always kept
+        assertTrue(NestedLayers.includes(nested, 21, "example/Base.class", false));
+    }
+
+    @Test
+    void dropsMetadataExceptServices() {
+        var nested = Map.<String, NavigableSet<Integer>>of();
+        assertFalse(NestedLayers.includes(nested, 11, "META-INF/MANIFEST.MF", false));
+        assertFalse(NestedLayers.includes(nested, 11, "META-INF/maven/com.example/example/pom.xml", false));
+        assertFalse(NestedLayers.includes(nested, 11, "META-INF/versions/17/META-INF/MANIFEST.MF", false));
+        assertFalse(NestedLayers.includes(null, 11, "META-INF/maven", true));
+        assertTrue(NestedLayers.includes(null, 11, "META-INF/services/com.example.Service", false));
+        assertTrue(NestedLayers.includes(nested, 11, "META-INF/versions/17/META-INF/services/com.example.Service", false));
+        assertTrue(NestedLayers.includes(null, 11, "META-INF", true));
+        assertTrue(NestedLayers.includes(null, 11, "META-INF/services", true));
+
+        // Invalid nested layers are dropped too
+        assertFalse(NestedLayers.includes(nested, 11, "META-INF/versions/8/example/Greeter.class", false));
+        assertFalse(NestedLayers.includes(nested, 11, "META-INF/versions/next/example/Greeter.class", false));
+    }
+
+    @Test
+    void remapsToTheHigherVersion() {
+        assertEquals(JAVA17, NestedLayers.remap(JAVA11, 17));
+        assertEquals(JAVA17, NestedLayers.remap(JAVA17, 11));
+        assertEquals("META-INF/versions/21/example/Greeter.class", NestedLayers.remap(JAVA17, 21));
+        assertNull(NestedLayers.remap(BASE, 17));
+    }
+
+    private File jar(String name, boolean multiRelease, String... entries) throws IOException {
+        var manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (multiRelease)
+            manifest.getMainAttributes().put(Attributes.Name.MULTI_RELEASE, "true");
+
+        var file = this.dir.resolve(name).toFile();
+        try (var out = new JarOutputStream(new FileOutputStream(file), manifest)) {
+            for (var entry : entries) {
+                out.putNextEntry(new JarEntry(entry));
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+}
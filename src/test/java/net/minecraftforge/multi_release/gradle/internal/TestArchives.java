@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/// Creates the entries and archives that the tests of the archive classes work with.
+final class TestArchives {
+    static final long TIME = MultiReleaseCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES;
+
+    private static final String MANIFEST = "Manifest-Version: 1.0\r\nMulti-Release: true\r\n\r\n";
+
+    private TestArchives() { }
+
+    static ArchiveEntry file(String name, String content) {
+        return ArchiveEntry.of(name, TIME, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ArchiveEntry file(String name, byte[] content) {
+        return ArchiveEntry.of(name, TIME, content);
+    }
+
+    static ArchiveEntry directory(String name) {
+        return ArchiveEntry.of(name, TIME, new byte[0]);
+    }
+
+    /// Creates the entries of a small multi-release JAR, with a versioned override of `example/Greeter.txt`.
+    ///
+    /// @param base   The content of the base `example/Greeter.txt`
+    /// @param java11 The content of its override for Java 11
+    /// @return The entries, which can be modified
+    static List<ArchiveEntry> multiRelease(String base, String java11) {
+        var ret = new ArrayList<ArchiveEntry>();
+        ret.add(directory("META-INF/"));
+        ret.add(file("META-INF/MANIFEST.MF", MANIFEST));
+        ret.add(directory("example/"));
+        ret.add(file("example/Base.txt", "base"));
+        ret.add(file("example/Greeter.txt", base));
+        ret.add(file("example/Other.txt", "other".repeat(100)));
+        ret.add(directory("META-INF/versions/"));
+        ret.add(directory("META-INF/versions/11/"));
+        ret.add(directory("META-INF/versions/11/example/"));
+        ret.add(file("META-INF/versions/11/example/Greeter.txt", java11));
+        return ret;
+    }
+
+    static File write(File file, List<ArchiveEntry> entries, boolean compress, boolean zip64) throws IOException {
+        try (var compressor = new EntryCompressor(compress, 1);
+             var writer = new ZipWriter(new BufferedOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8, zip64)) {
+            compressor.writeAll(entries, writer);
+        }
+        return file;
+    }
+
+    static List<String> names(List<ArchiveEntry> entries) {
+        return entries.stream().map(entry -> entry.name).toList();
+    }
+
+    static String read(ZipFile zip, ZipEntry entry) throws IOException {
+        try (var in = zip.getInputStream(entry)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
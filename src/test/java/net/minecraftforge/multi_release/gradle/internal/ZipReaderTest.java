@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.file;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.multiRelease;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.names;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.write;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZipReaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsCentralDirectory() throws IOException {
+        var entries = multiRelease("base", "java11");
+        var file = write(this.dir.resolve("example.jar").toFile(), entries, true, false);
+
+        try (var reader = new ZipReader(file, StandardCharsets.UTF_8)) {
+            assertEquals(names(entries), reader.entries().stream().map(ZipReader.Entry::name).toList());
+            assertNull(reader.get("missing.txt"));
+
+            var greeter = reader.get("example/Greeter.txt");
+            assertNotNull(greeter);
+            assertEquals(ZipWriter.DEFLATED, greeter.method());
+            assertEquals("base".length(), greeter.size());
+            assertEquals(crc("base"), greeter.crc());
+            assertEquals(0644, greeter.mode() & 0777);
+
+            var directory = reader.get("example/");
+            assertNotNull(directory);
+            assertEquals(ZipWriter.STORED, directory.method());
+            assertEquals(0, directory.size());
+
+            var last = reader.entries().get(reader.entries().size() - 1);
+            assertTrue(reader.centralDirectoryOffset() > last.offset());
+        }
+    }
+
+    @Test
+    void transfersStoredForm() throws IOException {
+        var entries = multiRelease("base", "java11");
+        var file = write(this.dir.resolve("example.jar").toFile(), entries, true, false);
+
+        // Every entry transferred in its stored form gives back the same archive
+        try (var reader = new ZipReader(file, StandardCharsets.UTF_8)) {
+            var copied = new ArrayList<ArchiveEntry>();
+            for (var entry : entries)
+                copied.add(entry.isDirectory() ? entry : entry.withStored(reader.read(reader.get(entry.name))));
+
+            var copy = write(this.dir.resolve("copy.jar").toFile(), copied, true, false);
+            assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(copy.toPath()));
+        }
+    }
+
+    @Test
+    void readsArchivesOfOtherWriters() throws IOException {
+        var file = this.dir.resolve("other.jar").toFile();
+        try (var out = new JarOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new JarEntry("example/Greeter.txt"));
+            out.write("other".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        // Entries written with data descriptors still have their sizes and CRC in the central directory
+        try (var reader = new ZipReader(file, StandardCharsets.UTF_8)) {
+            var entry = reader.get("example/Greeter.txt");
+            assertNotNull(entry);
+            assertEquals("other".length(), entry.size());
+            assertEquals(crc("other"), entry.crc());
+
+            var stored = reader.read(entry);
+            assertEquals(ZipWriter.DEFLATED, stored.method());
+            try (var in = new InflaterInputStream(new ByteArrayInputStream(stored.bytes()), new Inflater(true))) {
+                assertArrayEquals("other".getBytes(StandardCharsets.UTF_8), in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void readsZip64EntryCount() throws IOException {
+        var entries = new ArrayList<ArchiveEntry>();
+        for (int i = 0; i < 0x10000 + 10; i++)
+            entries.add(file("entries/" + i + ".txt", new byte[] { (byte) i }));
+
+        var file = write(this.dir.resolve("zip64.jar").toFile(), entries, false, true);
+        try (var reader = new ZipReader(file, StandardCharsets.UTF_8)) {
+            assertEquals(entries.size(), reader.entries().size());
+            assertEquals(names(entries), reader.entries().stream().map(ZipReader.Entry::name).toList());
+            assertArrayEquals(new byte[] { (byte) 12345 }, reader.read(reader.get("entries/12345.txt")).bytes());
+        }
+    }
+
+    /// See `ZipWriterTest.writesZip64Offsets` for why this needs the `sparse` tag.
+    @Test
+    @Tag("sparse")
+    void readsZip64Offsets() throws IOException {
+        var offset = 0x1_0000_0000L + 16;
+        var file = this.dir.resolve("zip64.jar").toFile();
+        try (var raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(offset);
+        }
+
+        var entries = multiRelease("base", "java11");
+        try (var compressor = new EntryCompressor(true, 1);
+             var writer = new ZipWriter(new BufferedOutputStream(new FileOutputStream(file, true)), StandardCharsets.UTF_8, true, offset, Map.of())) {
+            compressor.writeAll(entries, writer);
+        }
+
+        try (var reader = new ZipReader(file, StandardCharsets.UTF_8)) {
+            assertEquals(names(entries), reader.entries().stream().map(ZipReader.Entry::name).toList());
+            for (var entry : reader.entries())
+                assertTrue(entry.offset() >= offset, entry.name());
+
+            var greeter = reader.read(reader.get("example/Greeter.txt"));
+            var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                assertArrayEquals(ZipWriter.Data.of("base".getBytes(StandardCharsets.UTF_8), deflater).bytes(), greeter.bytes());
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    @Test
+    void rejectsNonArchives() throws IOException {
+        var file = this.dir.resolve("empty.jar");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> new ZipReader(file.toFile(), StandardCharsets.UTF_8).close());
+    }
+
+    private static long crc(String content) {
+        var crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
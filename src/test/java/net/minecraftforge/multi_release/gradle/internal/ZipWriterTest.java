@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.multi_release.gradle.internal;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.file;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.multiRelease;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.names;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.read;
+import static net.minecraftforge.multi_release.gradle.internal.TestArchives.write;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/// Writes archives with [ZipWriter] and reads them back with the JDK's own readers, to check that every archive the
+/// plugin writes is one the JDK accepts.
+class ZipWriterTest {
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void writesArchiveReadableByZipFile(boolean compress) throws IOException {
+        var entries = multiRelease("base", "java11");
+        var file = write(this.dir.resolve("example.jar").toFile(), entries, compress, false);
+
+        try (var zip = new ZipFile(file)) {
+            assertEquals(names(entries), zip.stream().map(ZipEntry::getName).toList());
+            for (var entry : entries) {
+                var read = zip.getEntry(entry.name);
+                assertEquals(entry.isDirectory(), read.isDirectory(), entry.name);
+                assertEquals(entry.isDirectory() || !compress ? ZipEntry.STORED : ZipEntry.DEFLATED, read.getMethod(), entry.name);
+                try (var in = zip.getInputStream(read)) {
+                    assertArrayEquals(entry.data(), in.readAllBytes(), entry.name);
+                }
+            }
+        }
+    }
+
+    @Test
+    void keepsManifestFirst() throws IOException {
+        var file = write(this.dir.resolve("example.jar").toFile(), multiRelease("base", "java11"), true, false);
+
+        // Streaming readers only find the manifest if it is one of the first two entries
+        try (var in = new JarInputStream(new FileInputStream(file))) {
+            assertNotNull(in.getManifest());
+            assertEquals("true", in.getManifest().getMainAttributes().getValue("Multi-Release"));
+        }
+    }
+
+    @Test
+    void resolvesVersionedEntries() throws IOException {
+        var file = write(this.dir.resolve("example.jar").toFile(), multiRelease("base", "java11"), true, false);
+
+        try (var jar = new JarFile(file, true, ZipFile.OPEN_READ, Runtime.Version.parse("11"))) {
+            assertTrue(jar.isMultiRelease());
+            var entry = jar.getJarEntry("example/Greeter.txt");
+            assertEquals("META-INF/versions/11/example/Greeter.txt", entry.getRealName());
+            assertEquals("java11", read(jar, entry));
+            assertEquals("base", read(jar, jar.getJarEntry("example/Base.txt")));
+        }
+
+        try (var jar = new JarFile(file, true, ZipFile.OPEN_READ, Runtime.Version.parse("9"))) {
+            var entry = jar.getJarEntry("example/Greeter.txt");
+            assertEquals("example/Greeter.txt", entry.getRealName());
+            assertEquals("base", read(jar, entry));
+        }
+    }
+
+    @Test
+    void writesZip64EntryCount() throws IOException {
+        var entries = new ArrayList<ArchiveEntry>();
+        for (int i = 0; i < 0x10000 + 10; i++)
+            entries.add(file("entries/" + i + ".txt", new byte[] { (byte) i }));
+
+        assertThrows(IOException.class, () -> write(this.dir.resolve("standard.jar").toFile(), entries, false, false));
+
+        var file = write(this.dir.resolve("zip64.jar").toFile(), entries, false, true);
+        try (var zip = new ZipFile(file)) {
+            assertEquals(entries.size(), zip.size());
+            assertEquals(names(entries), zip.stream().map(ZipEntry::getName).toList());
+            assertArrayEquals(new byte[] { (byte) 12345 }, zip.getInputStream(zip.getEntry("entries/12345.txt")).readAllBytes());
+        }
+    }
+
+    /// The entries start past 4 GiB, which a sparse file reaches without writing the space before them. File systems
+    /// without sparse files would have to write all of it, so this only runs when the `sparse` tag is requested.
+    @Test
+    @Tag("sparse")
+    void writesZip64Offsets() throws IOException {
+        var offset = 0x1_0000_0000L + 16;
+        var file = this.dir.resolve("zip64.jar").toFile();
+        try (var raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(offset);
+        }
+
+        var entries = multiRelease("base", "java11");
+        try (var compressor = new EntryCompressor(true, 1);
+             var writer = new ZipWriter(new BufferedOutputStream(new FileOutputStream(file, true)), StandardCharsets.UTF_8, true, offset, Map.of())) {
+            compressor.writeAll(entries, writer);
+        }
+
+        try (var jar = new JarFile(file, true, ZipFile.OPEN_READ, Runtime.Version.parse("11"))) {
+            assertEquals(names(entries), jar.stream().map(ZipEntry::getName).toList());
+            assertEquals("java11", read(jar, jar.getJarEntry("example/Greeter.txt")));
+            assertEquals("base", read(jar, jar.getJarEntry("example/Base.txt")));
+        }
+    }
+}